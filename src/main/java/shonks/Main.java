@@ -39,6 +39,11 @@ public class Main extends Application {
         stage.show();
     }
 
+    @Override
+    public void stop() {
+        shonks.close();
+    }
+
     private BorderPane createRootLayout() {
         BorderPane root = new BorderPane();
         root.setTop(createHeader());
@@ -1,14 +1,17 @@
 package shonks;
 
-import java.util.ArrayList;
-
 import shonks.command.Command;
 import shonks.command.CommandInvoker;
 import shonks.command.ExitStatus;
 import shonks.command.ShonksContext;
 import shonks.parser.UiParser;
+import shonks.storage.Durability;
+import shonks.storage.InMemoryStorage;
+import shonks.storage.LsmStorage;
 import shonks.storage.Storage;
-import shonks.task.Task;
+import shonks.storage.StorageBackend;
+import shonks.storage.StorageFormat;
+import shonks.task.DescriptionPool;
 import shonks.task.TaskList;
 import shonks.ui.StringUi;
 import shonks.ui.Ui;
@@ -21,11 +24,23 @@ import shonks.ui.Ui;
 public class Shonks {
 
     private static final String DATA_FILE_PATH = getAppPath("shonks.txt");
+    private static final String ARCHIVE_FILE_PATH = getAppPath("shonks-archive.txt");
+    private static final String LSM_DIR_PATH = getAppPath("shonks-lsm");
+    private static final String STORAGE_BACKEND = System.getProperty("shonks.storage", "file");
+    private static final boolean IS_JOURNALED = Boolean.getBoolean("shonks.journal");
+    private static final String STORAGE_FORMAT = System.getProperty("shonks.format");
+    private static final String DURABILITY = System.getProperty("shonks.durability");
+    private static final boolean IS_LAZY = Boolean.getBoolean("shonks.lazy");
+    private static final int LAZY_CACHE_SIZE = 10_000;
+    private static final boolean IS_COLUMNAR = Boolean.getBoolean("shonks.columns");
+    private static final int COLUMN_CACHE_SIZE = 10_000;
+    private static final int DESCRIPTION_POOL_SIZE = Integer.getInteger("shonks.descriptionPool", 0);
+    private static final long FLUSH_DELAY_MILLIS = Long.getLong("shonks.flushDelayMillis", 200);
 
     private final Ui ui;
     private final TaskList tasks;
     private final UiParser parser;
-    private final Storage storage;
+    private final StorageBackend storage;
     private final CommandInvoker commandInvoker;
 
     private static String getAppPath(String filename) {
@@ -40,8 +55,12 @@ public class Shonks {
      */
     public Shonks() {
         this.ui = new Ui();
-        this.storage = new Storage(DATA_FILE_PATH);
+        if (DESCRIPTION_POOL_SIZE > 0) {
+            DescriptionPool.enable(DESCRIPTION_POOL_SIZE);
+        }
+        this.storage = createStorage();
         this.tasks = loadTasks(storage);
+        storage.enableWriteBehind(tasks, FLUSH_DELAY_MILLIS);
         this.parser = new UiParser();
         this.commandInvoker = new CommandInvoker();
     }
@@ -65,7 +84,7 @@ public class Shonks {
             Ui tempUi = new StringUi(output, exitStatus);
 
             ShonksContext context = new ShonksContext(storage, tasks, tempUi, exitStatus);
-            commandInvoker.execute(cmd, context);
+            execute(cmd, context);
 
             return output.toString().trim();
         } catch (ShonksException e) {
@@ -87,19 +106,67 @@ public class Shonks {
                 ExitStatus exitStatus = new ExitStatus();
                 ShonksContext context = new ShonksContext(storage, tasks, ui, exitStatus);
 
-                commandInvoker.execute(cmd, context);
+                execute(cmd, context);
 
                 isRunning = !exitStatus.isExitRequested();
             } catch (ShonksException e) {
                 ui.showError(e.getMessage());
             }
         }
+        close();
+    }
+
+    /**
+     * Executes a command while holding the task list's monitor, so the background writer
+     * never captures a half-applied change, then reports any failed background save.
+     */
+    private void execute(Command cmd, ShonksContext context) throws ShonksException {
+        try {
+            synchronized (tasks) {
+                commandInvoker.execute(cmd, context);
+            }
+        } finally {
+            String saveFailure = storage.takeSaveFailure();
+            if (saveFailure != null) {
+                context.ui().showSaveFailure(saveFailure);
+            }
+        }
+    }
+
+    /**
+     * Writes out pending changes and waits for background storage work such as journal
+     * compaction to finish.
+     * Call before the application exits.
+     */
+    public void close() {
+        storage.close();
+    }
+
+    private static StorageBackend createStorage() {
+        switch (STORAGE_BACKEND.toLowerCase()) {
+        case "memory":
+            // Nothing is written to disk, so nothing survives a restart.
+            return new InMemoryStorage();
+        case "lsm":
+            return new LsmStorage(LSM_DIR_PATH, ARCHIVE_FILE_PATH);
+        default:
+            break;
+        }
+        Storage storage = new Storage(DATA_FILE_PATH, IS_JOURNALED, ARCHIVE_FILE_PATH);
+        if (STORAGE_FORMAT != null) {
+            // Converts the data file on the next save; otherwise the detected format is kept.
+            storage.setFormat(StorageFormat.valueOf(STORAGE_FORMAT.toUpperCase()));
+        }
+        if (DURABILITY != null) {
+            storage.setDurability(Durability.valueOf(DURABILITY.toUpperCase()));
+        }
+        return storage;
     }
 
-    private static TaskList loadTasks(Storage storage) {
+    private static TaskList loadTasks(StorageBackend storage) {
         try {
-            ArrayList<Task> loaded = storage.load();
-            return new TaskList(loaded);
+            TaskList loaded = IS_LAZY ? storage.loadLazily(LAZY_CACHE_SIZE) : storage.load();
+            return IS_COLUMNAR ? TaskList.inColumns(loaded.asList(), COLUMN_CACHE_SIZE) : loaded;
         } catch (ShonksException e) {
             return new TaskList();
         }
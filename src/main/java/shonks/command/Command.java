@@ -1,6 +1,9 @@
 package shonks.command;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Set;
+
+import shonks.task.TaskFilter;
 
 public class Command {
     /**
@@ -13,40 +16,125 @@ public class Command {
      */
     public enum Type {
         EXIT, LIST, MARK, UNMARK, DELETE, TODO, DEADLINE, EVENT, FIND,
-        ARCHIVE, RESTORE_ARCHIVE, STATS
+        ARCHIVE, RESTORE_ARCHIVE, STATS, EXPORT, IMPORT, DUE, DUE_BEFORE, BETWEEN, OVERLAPS
     }
 
     public final Type type;
     public final Integer index;         // for mark/unmark/delete (1-based)
     public final String description;    // for todo/deadline/event
-    public final LocalDate by;          // for deadline
-    public final LocalDateTime from;    // for event
-    public final LocalDateTime to;      // for event
+    public final LocalDate by;          // for deadline/due/due before
+    public final LocalDateTime from;    // for event/overlaps
+    public final LocalDateTime to;      // for event/overlaps
     public final String keyword;        // for find
+    public final String path;           // for export/import
+    public final Set<TaskFilter> filters;   // for list (empty lists everything)
+    public final DateRange dates;       // for between
 
-    private Command(Type type, Integer index, String description,
-                    LocalDate by, LocalDateTime from, LocalDateTime to, String keyword) {
+    private Command(Type type, Arguments args) {
         this.type = type;
-        this.index = index;
-        this.description = description;
-        this.by = by;
-        this.from = from;
-        this.to = to;
-        this.keyword = keyword;
-    }
-
-    public static Command exit() { return new Command(Type.EXIT, null, null, null, null, null, null); }
-    public static Command list() { return new Command(Type.LIST, null, null, null, null, null, null); }
-    public static Command mark(int index) { return new Command(Type.MARK, index, null, null, null, null, null); }
-    public static Command unmark(int index) { return new Command(Type.UNMARK, index, null, null, null, null, null); }
-    public static Command delete(int index) { return new Command(Type.DELETE, index, null, null, null, null, null); }
-    public static Command todo(String desc) { return new Command(Type.TODO, null, desc, null, null, null, null); }
-    public static Command deadline(String desc, LocalDate by) { return new Command(Type.DEADLINE, null, desc, by, null, null, null); }
+        this.index = args.index;
+        this.description = args.description;
+        this.by = args.by;
+        this.from = args.from;
+        this.to = args.to;
+        this.keyword = args.keyword;
+        this.path = args.path;
+        this.filters = args.filters == null ? Set.of() : args.filters;
+        this.dates = args.dates;
+    }
+
+    /**
+     * Range of days, both ends included.
+     */
+    public static class DateRange {
+        public final LocalDate from;
+        public final LocalDate to;
+
+        public DateRange(LocalDate from, LocalDate to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /**
+     * Values a factory fills in before the command is built; anything left unset stays null,
+     * so adding a field does not touch every other factory.
+     */
+    private static class Arguments {
+        private Integer index;
+        private String description;
+        private LocalDate by;
+        private LocalDateTime from;
+        private LocalDateTime to;
+        private String keyword;
+        private String path;
+        private Set<TaskFilter> filters;
+        private DateRange dates;
+
+        private Arguments index(Integer index) {
+            this.index = index;
+            return this;
+        }
+
+        private Arguments description(String description) {
+            this.description = description;
+            return this;
+        }
+
+        private Arguments by(LocalDate by) {
+            this.by = by;
+            return this;
+        }
+
+        private Arguments times(LocalDateTime from, LocalDateTime to) {
+            this.from = from;
+            this.to = to;
+            return this;
+        }
+
+        private Arguments keyword(String keyword) {
+            this.keyword = keyword;
+            return this;
+        }
+
+        private Arguments path(String path) {
+            this.path = path;
+            return this;
+        }
+
+        private Arguments filters(Set<TaskFilter> filters) {
+            this.filters = filters;
+            return this;
+        }
+
+        private Arguments dates(LocalDate from, LocalDate to) {
+            this.dates = new DateRange(from, to);
+            return this;
+        }
+    }
+
+    public static Command exit() { return new Command(Type.EXIT, new Arguments()); }
+    public static Command list() { return new Command(Type.LIST, new Arguments()); }
+
+    /**
+     * Creates a LIST command that only lists the tasks matching the given filters.
+     *
+     * @param filters Filters to apply, e.g. pending and event.
+     * @return A {@code Command} representing a filtered list request.
+     */
+    public static Command list(Set<TaskFilter> filters) {
+        return new Command(Type.LIST, new Arguments().filters(filters));
+    }
+    public static Command mark(int index) { return new Command(Type.MARK, new Arguments().index(index)); }
+    public static Command unmark(int index) { return new Command(Type.UNMARK, new Arguments().index(index)); }
+    public static Command delete(int index) { return new Command(Type.DELETE, new Arguments().index(index)); }
+    public static Command todo(String desc) { return new Command(Type.TODO, new Arguments().description(desc)); }
+    public static Command deadline(String desc, LocalDate by) { return new Command(Type.DEADLINE, new Arguments().description(desc).by(by)); }
     public static Command event(String desc, LocalDateTime from, LocalDateTime to) {
-        return new Command(Type.EVENT, null, desc, null, from, to, null);
+        return new Command(Type.EVENT, new Arguments().description(desc).times(from, to));
     }
     public static Command find(String keyword) {
-        return new Command(Type.FIND, null, null, null, null, null, keyword);
+        return new Command(Type.FIND, new Arguments().keyword(keyword));
     }
 
     /**
@@ -57,11 +145,11 @@ public class Command {
      * @return A {@code Command} representing an archive request.
      */
     public static Command archive(Integer index) {
-        return new Command(Type.ARCHIVE, index, null, null, null, null, null);
+        return new Command(Type.ARCHIVE, new Arguments().index(index));
     }
 
     public static Command restoreArchive(Integer index) {
-        return new Command(Type.RESTORE_ARCHIVE, index, null, null, null, null, null);
+        return new Command(Type.RESTORE_ARCHIVE, new Arguments().index(index));
     }
 
     /**
@@ -71,6 +159,68 @@ public class Command {
      * @return A {@code Command} representing a stats request.
      */
     public static Command stats() {
-        return new Command(Type.STATS, null, null, null, null, null, null);
+        return new Command(Type.STATS, new Arguments());
+    }
+
+    /**
+     * Creates an EXPORT command that writes every task to a CSV or JSON Lines file.
+     *
+     * @param path Path of the file to write; its extension picks the format.
+     * @return A {@code Command} representing an export request.
+     */
+    public static Command export(String path) {
+        return new Command(Type.EXPORT, new Arguments().path(path));
+    }
+
+    /**
+     * Creates an IMPORT command that appends every task of a CSV or JSON Lines file.
+     *
+     * @param path Path of the file to read; its extension picks the format.
+     * @return A {@code Command} representing an import request.
+     */
+    public static Command importFrom(String path) {
+        return new Command(Type.IMPORT, new Arguments().path(path));
+    }
+
+    /**
+     * Creates a DUE command that lists the deadlines due on one date.
+     *
+     * @param date The due date.
+     * @return A {@code Command} representing a due-date query.
+     */
+    public static Command due(LocalDate date) {
+        return new Command(Type.DUE, new Arguments().by(date));
+    }
+
+    /**
+     * Creates a DUE_BEFORE command that lists the deadlines due before a date.
+     *
+     * @param date The first date that is not included.
+     * @return A {@code Command} representing a due-before query.
+     */
+    public static Command dueBefore(LocalDate date) {
+        return new Command(Type.DUE_BEFORE, new Arguments().by(date));
+    }
+
+    /**
+     * Creates a BETWEEN command that lists the deadlines and events dated within a range.
+     *
+     * @param from First date of the range.
+     * @param to Last date of the range.
+     * @return A {@code Command} representing a date-range query.
+     */
+    public static Command between(LocalDate from, LocalDate to) {
+        return new Command(Type.BETWEEN, new Arguments().dates(from, to));
+    }
+
+    /**
+     * Creates an OVERLAPS command that lists the events overlapping a time range.
+     *
+     * @param from Start of the range.
+     * @param to End of the range.
+     * @return A {@code Command} representing an overlap query.
+     */
+    public static Command overlaps(LocalDateTime from, LocalDateTime to) {
+        return new Command(Type.OVERLAPS, new Arguments().times(from, to));
     }
 }
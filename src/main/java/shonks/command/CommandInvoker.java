@@ -5,13 +5,18 @@ import java.util.Map;
 
 import shonks.ShonksException;
 import shonks.command.handlers.ArchiveHandler;
+import shonks.command.handlers.BetweenHandler;
 import shonks.command.handlers.DeleteHandler;
 import shonks.command.handlers.DeadlineAddHandler;
+import shonks.command.handlers.DueHandler;
 import shonks.command.handlers.EventAddHandler;
 import shonks.command.handlers.ExitHandler;
+import shonks.command.handlers.ExportHandler;
 import shonks.command.handlers.FindHandler;
+import shonks.command.handlers.ImportHandler;
 import shonks.command.handlers.ListHandler;
 import shonks.command.handlers.MarkHandler;
+import shonks.command.handlers.OverlapsHandler;
 import shonks.command.handlers.StatsHandler;
 import shonks.command.handlers.TodoAddHandler;
 import shonks.command.handlers.UnmarkHandler;
@@ -60,5 +65,11 @@ public class CommandInvoker {
         handlers.put(Command.Type.STATS, new StatsHandler());
         handlers.put(Command.Type.ARCHIVE, new ArchiveHandler());
         handlers.put(Command.Type.RESTORE_ARCHIVE, new RestoreArchiveHandler());
+        handlers.put(Command.Type.EXPORT, new ExportHandler());
+        handlers.put(Command.Type.IMPORT, new ImportHandler());
+        handlers.put(Command.Type.DUE, new DueHandler());
+        handlers.put(Command.Type.DUE_BEFORE, new DueHandler());
+        handlers.put(Command.Type.BETWEEN, new BetweenHandler());
+        handlers.put(Command.Type.OVERLAPS, new OverlapsHandler());
     }
 }
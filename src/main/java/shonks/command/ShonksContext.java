@@ -1,6 +1,6 @@
 package shonks.command;
 
-import shonks.storage.Storage;
+import shonks.storage.StorageBackend;
 import shonks.task.TaskList;
 import shonks.ui.Ui;
 
@@ -9,7 +9,7 @@ import shonks.ui.Ui;
  */
 public class ShonksContext {
 
-    private final Storage storage;
+    private final StorageBackend storage;
     private final TaskList tasks;
     private final Ui ui;
     private final ExitStatus exitStatus;
@@ -22,7 +22,7 @@ public class ShonksContext {
      * @param ui The UI used to output messages.
      * @param exitStatus Tracks whether exit has been requested.
      */
-    public ShonksContext(Storage storage, TaskList tasks, Ui ui, ExitStatus exitStatus) {
+    public ShonksContext(StorageBackend storage, TaskList tasks, Ui ui, ExitStatus exitStatus) {
         this.storage = storage;
         this.tasks = tasks;
         this.ui = ui;
@@ -30,11 +30,11 @@ public class ShonksContext {
     }
 
     /**
-     * Returns the storage instance.
+     * Returns the storage backend.
      *
-     * @return The storage instance.
+     * @return The storage backend.
      */
-    public Storage storage() {
+    public StorageBackend storage() {
         return storage;
     }
 
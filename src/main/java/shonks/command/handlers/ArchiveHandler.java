@@ -1,6 +1,5 @@
 package shonks.command.handlers;
 
-import java.io.File;
 import java.util.ArrayList;
 
 import shonks.ShonksException;
@@ -14,14 +13,6 @@ import shonks.task.Task;
  */
 public class ArchiveHandler implements CommandHandler {
 
-
-    private static final String ARCHIVE_PATH = getAppPath("shonks-archive.txt");
-
-    private static String getAppPath(String filename) {
-        String home = System.getProperty("user.home");
-        return home + File.separator + ".shonks" + File.separator + filename;
-    }
-
     @Override
     public void handle(Command command, ShonksContext context) throws ShonksException {
         if (context.tasks().size() == 0) {
@@ -30,9 +21,9 @@ public class ArchiveHandler implements CommandHandler {
         }
         if (command.index == null) {
             int archivedCount = context.tasks().size();
-            context.storage().archiveTo(ARCHIVE_PATH, context.tasks().getInternalList());
+            context.storage().archive(context.tasks().asList());
             context.tasks().clear();
-            HandlerUtil.save(context);
+            HandlerUtil.saveCleared(context);
             context.ui().showLine("🗄 Archived " + archivedCount + " task(s). Find them in the bin next time."
                     + " Your list is now empty.");
             return;
@@ -42,9 +33,9 @@ public class ArchiveHandler implements CommandHandler {
         ArrayList<Task> one = new ArrayList<>();
         one.add(task);
 
-        context.storage().archiveTo(ARCHIVE_PATH, one);
+        context.storage().archive(one);
         HandlerUtil.removeTaskOrThrow(context, command.index);
-        HandlerUtil.save(context);
+        HandlerUtil.saveRemoved(context, task);
 
         context.ui().showLine("🗄 Archived task:\n  " + task.formatStatusLine()
                 + "\nNow you have " + context.tasks().size() + " tasks in the list.");
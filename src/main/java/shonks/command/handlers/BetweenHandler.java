@@ -0,0 +1,23 @@
+package shonks.command.handlers;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import shonks.command.Command;
+import shonks.command.CommandHandler;
+import shonks.command.ShonksContext;
+
+/**
+ * Handles listing the deadlines and events dated within a range of days.
+ */
+public class BetweenHandler implements CommandHandler {
+
+    @Override
+    public void handle(Command command, ShonksContext context) {
+        LocalDate from = command.dates.from;
+        LocalDate to = command.dates.to;
+        List<Integer> dated = context.tasks().datedBetween(from, to);
+        HandlerUtil.showTasksAt(context, dated, "Between " + from + " and " + to + ", you have these.",
+                "Nothing between " + from + " and " + to + ". A rare moment of peace.");
+    }
+}
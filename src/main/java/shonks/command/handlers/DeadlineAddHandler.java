@@ -5,6 +5,7 @@ import shonks.command.Command;
 import shonks.command.CommandHandler;
 import shonks.command.ShonksContext;
 import shonks.task.Deadline;
+import shonks.task.DescriptionPool;
 
 /**
  * Handles adding a deadline task.
@@ -13,6 +14,6 @@ public class DeadlineAddHandler implements CommandHandler {
 
     @Override
     public void handle(Command command, ShonksContext context) throws ShonksException {
-        HandlerUtil.addTask(context, new Deadline(command.description, command.by));
+        HandlerUtil.addTask(context, new Deadline(DescriptionPool.intern(command.description), command.by));
     }
 }
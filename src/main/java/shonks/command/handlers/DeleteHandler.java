@@ -14,7 +14,7 @@ public class DeleteHandler implements CommandHandler {
     @Override
     public void handle(Command command, ShonksContext context) throws ShonksException {
         Task removed = HandlerUtil.removeTaskOrThrow(context, command.index);
-        HandlerUtil.save(context);
+        HandlerUtil.saveRemoved(context, removed);
         context.ui().showDeleted(removed, context.tasks().size());
     }
 }
@@ -0,0 +1,26 @@
+package shonks.command.handlers;
+
+import java.util.List;
+
+import shonks.command.Command;
+import shonks.command.CommandHandler;
+import shonks.command.ShonksContext;
+
+/**
+ * Handles listing the deadlines due on a date, or before it.
+ */
+public class DueHandler implements CommandHandler {
+
+    @Override
+    public void handle(Command command, ShonksContext context) {
+        if (command.type == Command.Type.DUE_BEFORE) {
+            List<Integer> due = context.tasks().dueBefore(command.by);
+            HandlerUtil.showTasksAt(context, due, "Due before " + command.by + ". Clock is ticking.",
+                    "Nothing due before " + command.by + ". Suspiciously relaxed.");
+            return;
+        }
+        List<Integer> due = context.tasks().dueOn(command.by);
+        HandlerUtil.showTasksAt(context, due, "Due on " + command.by + ". Do not make me remind you again.",
+                "Nothing due on " + command.by + ". Enjoy it while it lasts.");
+    }
+}
@@ -1,18 +1,34 @@
 package shonks.command.handlers;
 
+import java.util.List;
+
 import shonks.ShonksException;
 import shonks.command.Command;
 import shonks.command.CommandHandler;
 import shonks.command.ShonksContext;
+import shonks.task.DescriptionPool;
 import shonks.task.Event;
 
 /**
- * Handles adding an event task.
+ * Handles adding an event task, warning about events it clashes with.
  */
 public class EventAddHandler implements CommandHandler {
 
     @Override
     public void handle(Command command, ShonksContext context) throws ShonksException {
-        HandlerUtil.addTask(context, new Event(command.description, command.from, command.to));
+        // Looked up before adding, so the new event does not clash with itself.
+        List<Integer> clashes = command.to.isAfter(command.from)
+                ? context.tasks().overlapping(command.from, command.to)
+                : List.of();
+        String description = DescriptionPool.intern(command.description);
+        HandlerUtil.addTask(context, new Event(description, command.from, command.to));
+
+        if (!clashes.isEmpty()) {
+            context.ui().showLine("Heads up. It clashes with " + clashes.size()
+                    + " event(s). Good luck being in two places:");
+            for (int position : clashes) {
+                context.ui().showLine(context.tasks().get(position).formatForList(position + 1));
+            }
+        }
     }
 }
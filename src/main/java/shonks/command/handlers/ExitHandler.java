@@ -1,16 +1,19 @@
 package shonks.command.handlers;
 
+import shonks.ShonksException;
 import shonks.command.Command;
 import shonks.command.CommandHandler;
 import shonks.command.ShonksContext;
 
 /**
  * Handles the exit command.
+ * Waits for pending saves first, so nothing is lost when the application closes.
  */
 public class ExitHandler implements CommandHandler {
 
     @Override
-    public void handle(Command command, ShonksContext context) {
+    public void handle(Command command, ShonksContext context) throws ShonksException {
+        context.storage().sync();
         context.ui().showBye();
         context.exitStatus().requestExit();
     }
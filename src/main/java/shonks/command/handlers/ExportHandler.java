@@ -0,0 +1,20 @@
+package shonks.command.handlers;
+
+import shonks.ShonksException;
+import shonks.command.Command;
+import shonks.command.CommandHandler;
+import shonks.command.ShonksContext;
+import shonks.storage.TaskExchange;
+
+/**
+ * Handles exporting every task to a CSV or JSON Lines file.
+ */
+public class ExportHandler implements CommandHandler {
+
+    @Override
+    public void handle(Command command, ShonksContext context) throws ShonksException {
+        int exported = TaskExchange.export(context.tasks().asList(), command.path);
+        context.ui().showLine("📤 Exported " + exported + " task(s) to " + command.path
+                + ". Take them. Please.");
+    }
+}
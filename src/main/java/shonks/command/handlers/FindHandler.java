@@ -14,16 +14,13 @@ public class FindHandler implements CommandHandler {
     public void handle(Command command, ShonksContext context) {
 
         int shown = 0;
-        for (int i = 0; i < context.tasks().size(); i++) {
-            Task task = context.tasks().get(i);
-            if (task.contains(command.keyword)) {
-                if (shown == 0) {
-                    context.ui().showFindHeader();
-                }
-
-                shown++;
-                context.ui().showLine(task.formatForList(shown));
+        for (Task task : context.tasks().find(command.keyword)) {
+            if (shown == 0) {
+                context.ui().showFindHeader();
             }
+
+            shown++;
+            context.ui().showLine(task.formatForList(shown));
         }
 
         if (shown == 0) {
@@ -1,5 +1,7 @@
 package shonks.command.handlers;
 
+import java.util.List;
+
 import shonks.ShonksException;
 import shonks.command.ShonksContext;
 import shonks.task.Task;
@@ -11,12 +13,129 @@ public class HandlerUtil {
 
     /**
      * Saves the current task list to storage.
+     * With write-behind enabled this only marks the list dirty for the background writer.
      *
      * @param context The execution context.
      * @throws ShonksException If saving fails.
      */
     public static void save(ShonksContext context) throws ShonksException {
-        context.storage().save(context.tasks().getInternalList());
+        context.storage().requestSave(context.tasks());
+    }
+
+    /**
+     * Persists a newly added task.
+     * In journal mode this appends one record, and with slots it writes one slot, instead of
+     * rewriting the whole file.
+     *
+     * @param context The execution context.
+     * @param task The added task.
+     * @throws ShonksException If saving fails.
+     */
+    public static void saveAdded(ShonksContext context, Task task) throws ShonksException {
+        if (context.storage().isIncremental()) {
+            context.storage().logAdd(task);
+            compactIfNeeded(context);
+        } else {
+            save(context);
+        }
+    }
+
+    /**
+     * Persists a batch of tasks that were added to the end of the list.
+     *
+     * @param context The execution context.
+     * @param tasks The added tasks, in list order.
+     * @throws ShonksException If saving fails.
+     */
+    public static void saveAddedAll(ShonksContext context, List<Task> tasks) throws ShonksException {
+        if (!context.storage().isIncremental()) {
+            save(context);
+            return;
+        }
+        for (Task task : tasks) {
+            context.storage().logAdd(task);
+        }
+        compactIfNeeded(context);
+    }
+
+    /**
+     * Persists the whole list with one full save, for changes too large to log task by task
+     * (e.g. a bulk import). Unlike {@link #save}, this writes immediately on every backend.
+     *
+     * @param context The execution context.
+     * @throws ShonksException If saving fails.
+     */
+    public static void saveBulk(ShonksContext context) throws ShonksException {
+        long modCount = context.tasks().getModCount();
+        context.storage().save(context.tasks().asList());
+        context.tasks().markPersisted(modCount);
+    }
+
+    private static void compactIfNeeded(ShonksContext context) throws ShonksException {
+        context.storage().compactIfNeeded(context.tasks());
+    }
+
+    /**
+     * Persists a task that was just marked as done.
+     *
+     * @param context The execution context.
+     * @param task The marked task.
+     * @throws ShonksException If saving fails.
+     */
+    public static void saveMarked(ShonksContext context, Task task) throws ShonksException {
+        if (context.storage().isIncremental()) {
+            context.storage().logMark(task);
+            compactIfNeeded(context);
+        } else {
+            save(context);
+        }
+    }
+
+    /**
+     * Persists a task that was just unmarked.
+     *
+     * @param context The execution context.
+     * @param task The unmarked task.
+     * @throws ShonksException If saving fails.
+     */
+    public static void saveUnmarked(ShonksContext context, Task task) throws ShonksException {
+        if (context.storage().isIncremental()) {
+            context.storage().logUnmark(task);
+            compactIfNeeded(context);
+        } else {
+            save(context);
+        }
+    }
+
+    /**
+     * Persists the removal of a task from the list.
+     *
+     * @param context The execution context.
+     * @param task The removed task.
+     * @throws ShonksException If saving fails.
+     */
+    public static void saveRemoved(ShonksContext context, Task task) throws ShonksException {
+        if (context.storage().isIncremental()) {
+            context.storage().logDelete(task);
+            compactIfNeeded(context);
+        } else {
+            save(context);
+        }
+    }
+
+    /**
+     * Persists the removal of every task from the list.
+     *
+     * @param context The execution context.
+     * @throws ShonksException If saving fails.
+     */
+    public static void saveCleared(ShonksContext context) throws ShonksException {
+        if (context.storage().isIncremental()) {
+            context.storage().logClear();
+            compactIfNeeded(context);
+        } else {
+            save(context);
+        }
     }
 
     /**
@@ -28,10 +147,31 @@ public class HandlerUtil {
      */
     public static void addTask(ShonksContext context, Task task) throws ShonksException {
         context.tasks().add(task);
-        save(context);
+        saveAdded(context, task);
         context.ui().showAdded(task, context.tasks().size());
     }
 
+    /**
+     * Shows the tasks at the given positions with their list numbers, so they can be marked
+     * or deleted straight away.
+     *
+     * @param context The execution context.
+     * @param positions 0-based positions, in list order.
+     * @param header Line shown above the tasks.
+     * @param noMatches Line shown instead if there are none.
+     */
+    public static void showTasksAt(ShonksContext context, List<Integer> positions, String header,
+                                   String noMatches) {
+        if (positions.isEmpty()) {
+            context.ui().showLine(noMatches);
+            return;
+        }
+        context.ui().showLine(header);
+        for (int position : positions) {
+            context.ui().showLine(context.tasks().get(position).formatForList(position + 1));
+        }
+    }
+
     /**
      * Retrieves a task by 1-based index.
      *
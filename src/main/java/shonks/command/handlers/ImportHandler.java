@@ -0,0 +1,42 @@
+package shonks.command.handlers;
+
+import java.util.List;
+
+import shonks.ShonksException;
+import shonks.command.Command;
+import shonks.command.CommandHandler;
+import shonks.command.ShonksContext;
+import shonks.storage.TaskExchange;
+import shonks.task.Task;
+
+/**
+ * Handles importing tasks from a CSV or JSON Lines file.
+ * <p>
+ * The file is streamed in batches of {@value #BATCH_SIZE} tasks, which are appended to the
+ * list as they are read, and the list is persisted once at the end. If any record is broken,
+ * the tasks imported so far are removed again, so an import is all or nothing.
+ */
+public class ImportHandler implements CommandHandler {
+    private static final int BATCH_SIZE = 10_000;
+
+    @Override
+    public void handle(Command command, ShonksContext context) throws ShonksException {
+        int sizeBefore = context.tasks().size();
+        try (TaskExchange.BatchReader reader = TaskExchange.openImport(command.path)) {
+            List<Task> batch;
+            while (!(batch = reader.nextBatch(BATCH_SIZE)).isEmpty()) {
+                context.tasks().addAll(batch);
+            }
+        } catch (ShonksException e) {
+            context.tasks().removeFrom(sizeBefore);
+            throw new ShonksException(e.getMessage() + " Nothing was imported.");
+        }
+
+        int imported = context.tasks().size() - sizeBefore;
+        if (imported > 0) {
+            HandlerUtil.saveBulk(context);
+        }
+        context.ui().showLine("📥 Imported " + imported + " task(s) from " + command.path
+                + ". Now you have " + context.tasks().size() + " tasks in the list.");
+    }
+}
@@ -1,11 +1,13 @@
 package shonks.command.handlers;
 
+import java.util.List;
+
 import shonks.command.Command;
 import shonks.command.CommandHandler;
 import shonks.command.ShonksContext;
 
 /**
- * Handles listing all tasks.
+ * Handles listing all tasks, or only those matching the command's filters.
  */
 public class ListHandler implements CommandHandler {
 
@@ -16,6 +18,12 @@ public class ListHandler implements CommandHandler {
             context.ui().showEmptyList();
             return;
         }
+        if (!command.filters.isEmpty()) {
+            List<Integer> matches = context.tasks().filter(command.filters);
+            HandlerUtil.showTasksAt(context, matches, "Here. Only the ones you asked for, numbers and all:",
+                    "Nothing like that in your list. Try being less picky.");
+            return;
+        }
         context.ui().showListHeader();
         for (int i = 0; i < context.tasks().size(); i++) {
             context.ui().showLine(context.tasks().get(i).formatForList(i + 1));
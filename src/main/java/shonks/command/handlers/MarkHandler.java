@@ -8,14 +8,16 @@ import shonks.task.Task;
 
 /**
  * Handles marking a task as done.
+ * Marking a task that is already done changes nothing, so nothing is saved.
  */
 public class MarkHandler implements CommandHandler {
 
     @Override
     public void handle(Command command, ShonksContext context) throws ShonksException {
         Task task = HandlerUtil.getTaskOrThrow(context, command.index);
-        task.markDone();
-        HandlerUtil.save(context);
+        if (context.tasks().markDone(command.index - 1)) {
+            HandlerUtil.saveMarked(context, task);
+        }
         context.ui().showMarked(task);
     }
 }
@@ -0,0 +1,21 @@
+package shonks.command.handlers;
+
+import java.util.List;
+
+import shonks.command.Command;
+import shonks.command.CommandHandler;
+import shonks.command.ShonksContext;
+
+/**
+ * Handles listing the events that overlap a time range.
+ */
+public class OverlapsHandler implements CommandHandler {
+
+    @Override
+    public void handle(Command command, ShonksContext context) {
+        List<Integer> overlapping = context.tasks().overlapping(command.from, command.to);
+        HandlerUtil.showTasksAt(context, overlapping,
+                "These events get in the way of " + command.from + " to " + command.to + ".",
+                "Nothing overlaps " + command.from + " to " + command.to + ". Go wild.");
+    }
+}
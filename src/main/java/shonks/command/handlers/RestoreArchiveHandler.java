@@ -1,7 +1,6 @@
 package shonks.command.handlers;
 
-import java.io.File;
-import java.util.ArrayList;
+import java.util.List;
 
 import shonks.ShonksException;
 import shonks.command.Command;
@@ -19,55 +18,38 @@ import shonks.task.Task;
  */
 public class RestoreArchiveHandler implements CommandHandler {
 
-    private static final String ARCHIVE_PATH = getAppPath("shonks-archive.txt");
-
-    private static String getAppPath(String filename) {
-        String home = System.getProperty("user.home");
-        return home + File.separator + ".shonks" + File.separator + filename;
-    }
-
     @Override
     public void handle(Command command, ShonksContext context) throws ShonksException {
-        ArrayList<Task> archived = context.storage().loadFromPath(ARCHIVE_PATH);
-
-        if (archived.isEmpty()) {
+        if (context.storage().archivedCount() == 0) {
             context.ui().showLine("Nothing in the archive to restore. Go archive something first.");
             return;
         }
 
         if (command.index == null) {
-            restoreAll(context, archived);
+            restoreAll(context);
             return;
         }
 
-        restoreOne(context, archived, command.index);
+        restoreOne(context, command.index);
     }
 
-    private void restoreAll(ShonksContext context, ArrayList<Task> archived) throws ShonksException {
+    private void restoreAll(ShonksContext context) throws ShonksException {
+        List<Task> archived = context.storage().restoreAllFromArchive();
         for (Task t : archived) {
             context.tasks().add(t);
         }
 
-        context.storage().overwriteTo(ARCHIVE_PATH, new ArrayList<>());
-        HandlerUtil.save(context);
+        HandlerUtil.saveAddedAll(context, archived);
 
         context.ui().showLine("🗃 Restored " + archived.size()
                 + " task(s) from archive. They are back. Regrettably.");
     }
 
-    private void restoreOne(ShonksContext context,
-                            ArrayList<Task> archived,
-                            int oneBasedArchivedIndex) throws ShonksException {
-        int i = oneBasedArchivedIndex - 1;
-        if (i < 0 || i >= archived.size()) {
-            throw new ShonksException("That archived task number does not exist.");
-        }
-
-        Task restored = archived.remove(i);
+    private void restoreOne(ShonksContext context, int oneBasedArchivedIndex) throws ShonksException {
+        Task restored = context.storage().restoreFromArchive(oneBasedArchivedIndex - 1);
         context.tasks().add(restored);
 
-        context.storage().overwriteTo(ARCHIVE_PATH, archived);
-        HandlerUtil.save(context);
+        HandlerUtil.saveAdded(context, restored);
 
         context.ui().showLine("🗃 Restored archived task:\n  "
                 + restored.formatStatusLine()
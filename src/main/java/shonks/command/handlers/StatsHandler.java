@@ -3,6 +3,8 @@ package shonks.command.handlers;
 import shonks.command.Command;
 import shonks.command.CommandHandler;
 import shonks.command.ShonksContext;
+import shonks.storage.CompactionReport;
+import shonks.task.DescriptionPool;
 
 /**
  * Handles showing task statistics.
@@ -14,6 +16,14 @@ public class StatsHandler implements CommandHandler {
         StatsUtil.Summary s = StatsUtil.compute(context.tasks());
 
         context.ui().showLine(StatsUtil.format(s));
+        CompactionReport compaction = context.storage().getLastCompaction();
+        if (compaction != null) {
+            context.ui().showLine(StatsUtil.format(compaction));
+        }
+        DescriptionPool pool = DescriptionPool.shared();
+        if (pool != null) {
+            context.ui().showLine(StatsUtil.format(pool));
+        }
         context.ui().showPieChart("Task Types", s.todo, s.deadline, s.event);
     }
 }
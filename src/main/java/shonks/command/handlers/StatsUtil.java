@@ -1,6 +1,8 @@
 package shonks.command.handlers;
 
+import shonks.storage.CompactionReport;
 import shonks.task.Deadline;
+import shonks.task.DescriptionPool;
 import shonks.task.Event;
 import shonks.task.Task;
 import shonks.task.TaskList;
@@ -34,18 +36,37 @@ public class StatsUtil {
 
     /**
      * Computes summary statistics for the given task list.
+     * <p>
+     * The counts come from counters the list keeps up to date, so this takes constant time
+     * however long the list is. With assertions enabled ({@code -ea}) every call also checks
+     * them against a full {@link #recompute}.
      *
      * @param taskList The task list.
      * @return Summary stats.
      */
     public static Summary compute(TaskList taskList) {
+        int total = taskList.size();
+        int done = taskList.countDone();
+        Summary summary = new Summary(total, done, total - done,
+                taskList.countTodos(), taskList.countDeadlines(), taskList.countEvents());
+        assert isSame(summary, recompute(taskList)) : "Stats counters should match a full recount";
+        return summary;
+    }
+
+    /**
+     * Computes summary statistics by going through every task in the list.
+     *
+     * @param taskList The task list.
+     * @return Summary stats.
+     */
+    static Summary recompute(TaskList taskList) {
         int total = taskList.size();
         int done = 0;
         int todo = 0;
         int deadline = 0;
         int event = 0;
 
-        for (Task t : taskList.getInternalList()) {
+        for (Task t : taskList.asList()) {
             if (t.isDone()) {
                 done++;
             }
@@ -62,6 +83,11 @@ public class StatsUtil {
         return new Summary(total, done, pending, todo, deadline, event);
     }
 
+    private static boolean isSame(Summary a, Summary b) {
+        return a.total == b.total && a.done == b.done && a.pending == b.pending
+                && a.todo == b.todo && a.deadline == b.deadline && a.event == b.event;
+    }
+
     /**
      * Formats summary statistics for the given task list.
      *
@@ -72,6 +98,33 @@ public class StatsUtil {
         return format(compute(taskList));
     }
 
+    /**
+     * Formats the outcome of the storage's last background compaction.
+     *
+     * @param report The compaction report.
+     * @return formatted string.
+     */
+    public static String format(CompactionReport report) {
+        if (!report.isSuccessful()) {
+            return "last compaction: failed after " + report.durationMillis + " ms (" + report.error + ")";
+        }
+        return "last compaction: " + report.tasksWritten + " task(s) in " + report.durationMillis
+                + " ms, " + report.bytesReclaimed + " bytes reclaimed";
+    }
+
+    /**
+     * Formats how well the description pool is deduplicating task descriptions.
+     *
+     * @param pool The description pool in use.
+     * @return formatted string.
+     */
+    public static String format(DescriptionPool pool) {
+        long lookups = pool.getLookups();
+        double hitRate = lookups == 0 ? 0 : 100.0 * pool.getHits() / lookups;
+        return String.format("shared descriptions: %d of %d (%.1f%% hit rate), ~%d KB saved",
+                pool.getHits(), lookups, hitRate, pool.getBytesSaved() / 1024);
+    }
+
     /**
      * Formats summary statistics from a precomputed Summary.
      *
@@ -4,6 +4,7 @@ import shonks.ShonksException;
 import shonks.command.Command;
 import shonks.command.CommandHandler;
 import shonks.command.ShonksContext;
+import shonks.task.DescriptionPool;
 import shonks.task.Todo;
 
 /**
@@ -13,6 +14,6 @@ public class TodoAddHandler implements CommandHandler {
 
     @Override
     public void handle(Command command, ShonksContext context) throws ShonksException {
-        HandlerUtil.addTask(context, new Todo(command.description));
+        HandlerUtil.addTask(context, new Todo(DescriptionPool.intern(command.description)));
     }
 }
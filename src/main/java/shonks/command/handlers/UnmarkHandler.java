@@ -8,14 +8,16 @@ import shonks.task.Task;
 
 /**
  * Handles unmarking a task as done.
+ * Unmarking a task that is still pending changes nothing, so nothing is saved.
  */
 public class UnmarkHandler implements CommandHandler {
 
     @Override
     public void handle(Command command, ShonksContext context) throws ShonksException {
         Task task = HandlerUtil.getTaskOrThrow(context, command.index);
-        task.unmarkDone();
-        HandlerUtil.save(context);
+        if (context.tasks().unmarkDone(command.index - 1)) {
+            HandlerUtil.saveUnmarked(context, task);
+        }
         context.ui().showUnmarked(task);
     }
 }
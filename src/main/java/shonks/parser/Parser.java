@@ -3,9 +3,11 @@ package shonks.parser;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
+import java.util.EnumSet;
 
 import shonks.ShonksException;
 import shonks.command.Command;
+import shonks.task.TaskFilter;
 
 /**
  * Parses raw user input strings into {@link Command} objects.
@@ -50,7 +52,7 @@ public class Parser {
         case "bye":
             return Command.exit();
         case "list":
-            return Command.list();
+            return parseList(t.args);
         case "mark":
             return parseMark(t.args);
         case "unmark":
@@ -72,6 +74,18 @@ public class Parser {
         case "restore":
         case "unarchive":
             return parseRestoreArchive(t.args);
+        case "export":
+            return Command.export(requireNonBlank(t.args,
+                    "Export to where? Give a file name ending in .csv or .jsonl."));
+        case "import":
+            return Command.importFrom(requireNonBlank(t.args,
+                    "Import from what? I need a file, not vibes."));
+        case "due":
+            return parseDue(t.args);
+        case "between":
+            return parseBetween(t.args);
+        case "overlaps":
+            return parseOverlaps(t.args);
         default:
             throw new ShonksException("?? I do not understand that command. Try again but like correctly.");
         }
@@ -144,6 +158,41 @@ public class Parser {
         return Command.event(description, from, to);
     }
 
+    /**
+     * Parses a list command and its optional filters, e.g. {@code list pending event}.
+     */
+    private static Command parseList(String args) throws ShonksException {
+        if (args.isEmpty()) {
+            return Command.list();
+        }
+        EnumSet<TaskFilter> filters = EnumSet.noneOf(TaskFilter.class);
+        for (String word : args.toLowerCase().split("\\s+")) {
+            filters.add(parseFilter(word));
+        }
+        return Command.list(filters);
+    }
+
+    private static TaskFilter parseFilter(String word) throws ShonksException {
+        switch (word) {
+        case "pending":
+            return TaskFilter.PENDING;
+        case "done":
+            return TaskFilter.DONE;
+        case "todo":
+        case "todos":
+            return TaskFilter.TODO;
+        case "deadline":
+        case "deadlines":
+            return TaskFilter.DEADLINE;
+        case "event":
+        case "events":
+            return TaskFilter.EVENT;
+        default:
+            throw new ShonksException("List " + word + "?? I can list pending, done, todo, deadline or event. "
+                    + "Pick from those.");
+        }
+    }
+
     /**
      * Parses a find command.
      */
@@ -152,6 +201,62 @@ public class Parser {
                 "Find wHaT?? A keyword would help."));
     }
 
+    /**
+     * Parses a due or due before command.
+     */
+    private static Command parseDue(String args) throws ShonksException {
+        String value = requireNonBlank(args,
+                "Due wHeN? Give a date like 2019-10-15. Or 'due before' one.");
+
+        String[] parts = value.split("\\s+", 2);
+        if (!parts[0].equalsIgnoreCase("before")) {
+            return Command.due(parseDate(value));
+        }
+        String date = requireNonBlank(parts.length == 2 ? parts[1] : "",
+                "Due before wHaT? The date goes after 'before'.");
+        return Command.dueBefore(parseDate(date));
+    }
+
+    /**
+     * Parses a between command.
+     */
+    private static Command parseBetween(String args) throws ShonksException {
+        String value = requireNonBlank(args,
+                "Between wHaT? Use between <from date> <to date>.");
+
+        String[] parts = value.split("\\s+");
+        if (parts.length != 2) {
+            throw new ShonksException("Two dates. Not more, not less. Use between <from date> <to date>.");
+        }
+
+        LocalDate from = parseDate(parts[0]);
+        LocalDate to = parseDate(parts[1]);
+        if (to.isBefore(from)) {
+            throw new ShonksException("That range ends before it starts. Time does not work like that.");
+        }
+        return Command.between(from, to);
+    }
+
+    /**
+     * Parses an overlaps command.
+     */
+    private static Command parseOverlaps(String args) throws ShonksException {
+        String value = requireNonBlank(args,
+                "Overlaps wHaT? Use overlaps <from> <to>, e.g. overlaps 2019-10-15T14:00 2019-10-15T16:00.");
+
+        String[] parts = value.split("\\s+");
+        if (parts.length != 2) {
+            throw new ShonksException("Two datetimes. Not more, not less. Use overlaps <from> <to>.");
+        }
+
+        LocalDateTime from = parseDateTime(parts[0]);
+        LocalDateTime to = parseDateTime(parts[1]);
+        if (!to.isAfter(from)) {
+            throw new ShonksException("That range ends before it starts. Time does not work like that.");
+        }
+        return Command.overlaps(from, to);
+    }
+
     /**
      * Parses an archive command.
      */
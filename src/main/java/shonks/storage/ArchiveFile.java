@@ -0,0 +1,96 @@
+package shonks.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import shonks.ShonksException;
+import shonks.task.Task;
+
+/**
+ * The archive of a file-based storage backend: a {@link SegmentedArchive} at a fixed path,
+ * opened on first use and reopened if another process changed it, with I/O failures reported
+ * as {@link ShonksException}.
+ */
+class ArchiveFile {
+    static final long DEFAULT_SEGMENT_BYTES = 1024 * 1024;
+
+    private final String path;
+    private long segmentBytes = DEFAULT_SEGMENT_BYTES;
+    private SegmentedArchive archive;
+
+    ArchiveFile(String path) {
+        assert path != null && !path.isEmpty() : "Archive path should be non-empty";
+        this.path = path;
+    }
+
+    /**
+     * Returns the archive path used next to a data file: {@code shonks.txt} is archived to
+     * {@code shonks-archive.txt} in the same folder.
+     */
+    static String defaultPath(String filePath) {
+        String name = new File(filePath).getName();
+        int dot = name.lastIndexOf('.');
+        String base = filePath.substring(0, filePath.length() - name.length())
+                + (dot > 0 ? name.substring(0, dot) : name);
+        return base + "-archive" + (dot > 0 ? name.substring(dot) : ".txt");
+    }
+
+    void setSegmentBytes(long segmentBytes) {
+        assert segmentBytes > 0 : "Segment size should be positive";
+        this.segmentBytes = segmentBytes;
+        archive = null;
+    }
+
+    void append(List<Task> tasks) throws ShonksException {
+        assert tasks != null : "Tasks to archive should not be null";
+        File parent = new File(path).getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new ShonksException("Could not create archive folder.");
+        }
+
+        try {
+            open().append(tasks);
+        } catch (IOException e) {
+            throw new ShonksException("Error archiving data.");
+        }
+    }
+
+    int size() throws ShonksException {
+        try {
+            return open().size();
+        } catch (IOException e) {
+            throw new ShonksException("Error loading data.");
+        }
+    }
+
+    Task restore(int index) throws ShonksException {
+        try {
+            SegmentedArchive opened = open();
+            if (index < 0 || index >= opened.size()) {
+                throw new ShonksException("That archived task number does not exist.");
+            }
+            return opened.restore(index);
+        } catch (IOException e) {
+            throw new ShonksException("Error loading data.");
+        }
+    }
+
+    List<Task> restoreAll() throws ShonksException {
+        try {
+            SegmentedArchive opened = open();
+            List<Task> tasks = opened.readAll();
+            opened.clear();
+            return tasks;
+        } catch (IOException e) {
+            throw new ShonksException("Error loading data.");
+        }
+    }
+
+    private SegmentedArchive open() throws IOException {
+        if (archive == null || !archive.isCurrent()) {
+            archive = SegmentedArchive.open(path, segmentBytes);
+        }
+        return archive;
+    }
+}
@@ -0,0 +1,354 @@
+package shonks.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import shonks.ShonksException;
+import shonks.task.Task;
+
+/**
+ * Append-only archive file with an offset index, so one archived task can be read and
+ * restored without loading or rewriting the whole archive.
+ * <p>
+ * The archive itself stays a text file with one task line each. Restoring a task overwrites
+ * the first byte of its line with {@code '-'} (a tombstone), and tombstoned lines are dropped
+ * the next time the archive is compacted. The index {@code <path>.idx} holds:
+ * <pre>
+ * long      length of the archive file the index covers
+ * long...   offset of every line, or -offset - 1 if the line is tombstoned
+ * </pre>
+ * If the index is missing or does not cover the archive (e.g. after a crash or a manual
+ * edit), it is rebuilt with one pass over the archive.
+ */
+class ArchiveStore {
+    private static final byte TOMBSTONE = '-';
+    private static final int HEADER_BYTES = Long.BYTES;
+    private static final int MIN_TOMBSTONES_TO_COMPACT = 1024;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final File file;
+    private final File indexFile;
+    private int recordCount;
+    private long coveredLength;
+    private int[] tombstones = new int[16];    // sorted record positions
+    private int tombstoneCount;
+
+    private ArchiveStore(File file) {
+        this.file = file;
+        this.indexFile = new File(file.getPath() + ".idx");
+    }
+
+    /**
+     * Opens the archive at the given path, reading or rebuilding its index.
+     */
+    static ArchiveStore open(String path) throws IOException {
+        ArchiveStore store = new ArchiveStore(new File(path));
+        store.loadIndex();
+        return store;
+    }
+
+    /**
+     * Returns whether the files on disk still match what this store has read, i.e. nobody
+     * else wrote to the archive since.
+     */
+    boolean isCurrent() {
+        return file.length() == coveredLength && (coveredLength == 0 || indexFile.exists());
+    }
+
+    int size() {
+        return recordCount - tombstoneCount;
+    }
+
+    void append(List<Task> tasks) throws IOException {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        long offset = file.length();
+        long[] offsets = new long[tasks.size()];
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file, true), BUFFER_SIZE)) {
+            if (offset > 0 && !endsWithLineBreak()) {
+                out.write('\n');
+                offset++;
+            }
+            for (int i = 0; i < tasks.size(); i++) {
+                byte[] line = (tasks.get(i).toStorageString() + "\n").getBytes(StandardCharsets.UTF_8);
+                offsets[i] = offset;
+                out.write(line);
+                offset += line.length;
+            }
+        }
+
+        try (RandomAccessFile index = new RandomAccessFile(indexFile, "rw")) {
+            index.seek(HEADER_BYTES + (long) recordCount * Long.BYTES);
+            byte[] entries = new byte[offsets.length * Long.BYTES];
+            for (int i = 0; i < offsets.length; i++) {
+                putLong(entries, i * Long.BYTES, offsets[i]);
+            }
+            index.write(entries);
+            // The covered length goes last: a crash before this line only forces a rebuild.
+            index.seek(0);
+            index.writeLong(offset);
+        }
+        recordCount += offsets.length;
+        coveredLength = offset;
+    }
+
+    private boolean endsWithLineBreak() throws IOException {
+        try (RandomAccessFile archive = new RandomAccessFile(file, "r")) {
+            archive.seek(archive.length() - 1);
+            return archive.read() == '\n';
+        }
+    }
+
+    /**
+     * Reads the live task at the given position with one seek into the index and one into
+     * the archive, and tombstones it.
+     *
+     * @param index 0-based position among tasks that have not been restored yet.
+     * @return The restored task.
+     */
+    Task restore(int index) throws IOException, ShonksException {
+        assert index >= 0 && index < size() : "Archive index out of bounds";
+        int position = toPosition(index);
+
+        try (RandomAccessFile indexIn = new RandomAccessFile(indexFile, "rw");
+             RandomAccessFile archive = new RandomAccessFile(file, "rw")) {
+            long entryOffset = HEADER_BYTES + (long) position * Long.BYTES;
+            indexIn.seek(entryOffset);
+            long offset = indexIn.readLong();
+            assert offset >= 0 : "Live record should not be tombstoned";
+
+            archive.seek(offset);
+            Task task = Task.fromStorageString(readLine(archive));
+
+            archive.seek(offset);
+            archive.writeByte(TOMBSTONE);
+            indexIn.seek(entryOffset);
+            indexIn.writeLong(-offset - 1);
+            addTombstone(position);
+            return task;
+        }
+    }
+
+    /**
+     * Returns every live task, in archive order.
+     */
+    List<Task> readAll() throws IOException, ShonksException {
+        List<Task> tasks = new ArrayList<>(size());
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE)) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            while (readLine(in, line)) {
+                String text = line.toString(StandardCharsets.UTF_8).stripTrailing();
+                if (isLive(text)) {
+                    tasks.add(Task.fromStorageString(text));
+                }
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Deletes the archive and its index.
+     */
+    void clear() throws IOException {
+        Files.deleteIfExists(file.toPath());
+        Files.deleteIfExists(indexFile.toPath());
+        recordCount = 0;
+        coveredLength = 0;
+        tombstoneCount = 0;
+    }
+
+    /**
+     * Rewrites the archive without tombstoned lines once they are a quarter of it.
+     *
+     * @return Whether the archive was compacted.
+     */
+    boolean compactIfNeeded() throws IOException {
+        if (tombstoneCount < MIN_TOMBSTONES_TO_COMPACT || tombstoneCount * 4L < recordCount) {
+            return false;
+        }
+        compact();
+        return true;
+    }
+
+    void compact() throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp), BUFFER_SIZE)) {
+            copyLiveLines(file, out);
+        }
+        Storage.moveAtomically(temp, file);
+        rebuildIndex();
+    }
+
+    /**
+     * Copies the lines of an archive file that are neither blank nor tombstoned.
+     *
+     * @return The number of lines copied.
+     */
+    static int copyLiveLines(File archive, OutputStream out) throws IOException {
+        int count = 0;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(archive), BUFFER_SIZE)) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            while (readLine(in, line)) {
+                if (isLive(line.toString(StandardCharsets.UTF_8))) {
+                    line.writeTo(out);
+                    out.write('\n');
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    long length() {
+        return coveredLength;
+    }
+
+    private int toPosition(int index) {
+        int position = index;
+        for (int i = 0; i < tombstoneCount && tombstones[i] <= position; i++) {
+            position++;
+        }
+        return position;
+    }
+
+    private void addTombstone(int position) {
+        int at = -Arrays.binarySearch(tombstones, 0, tombstoneCount, position) - 1;
+        assert at >= 0 : "Record should not be tombstoned twice";
+        if (tombstoneCount == tombstones.length) {
+            tombstones = Arrays.copyOf(tombstones, tombstoneCount * 2);
+        }
+        System.arraycopy(tombstones, at, tombstones, at + 1, tombstoneCount - at);
+        tombstones[at] = position;
+        tombstoneCount++;
+    }
+
+    private void loadIndex() throws IOException {
+        long length = file.length();
+        if (!indexFile.exists() || (indexFile.length() - HEADER_BYTES) % Long.BYTES != 0) {
+            rebuildIndex();
+            return;
+        }
+
+        boolean isCurrent;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(indexFile), BUFFER_SIZE))) {
+            isCurrent = in.readLong() == length;
+            if (isCurrent) {
+                readTombstones(in, length);
+            }
+        } catch (EOFException e) {
+            isCurrent = false;
+        }
+        if (!isCurrent) {
+            rebuildIndex();    // after the index file is closed, as the rebuild rewrites it
+        }
+    }
+
+    private void readTombstones(DataInputStream in, long length) throws IOException {
+        int count = (int) ((indexFile.length() - HEADER_BYTES) / Long.BYTES);
+        for (int i = 0; i < count; i++) {
+            if (in.readLong() < 0) {
+                addTombstone(i);
+            }
+        }
+        recordCount = count;
+        coveredLength = length;
+    }
+
+    private void rebuildIndex() throws IOException {
+        recordCount = 0;
+        tombstoneCount = 0;
+        coveredLength = file.length();
+        if (!file.exists()) {
+            Files.deleteIfExists(indexFile.toPath());
+            return;
+        }
+
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+             DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(new FileOutputStream(indexFile), BUFFER_SIZE))) {
+            out.writeLong(coveredLength);
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long offset = 0;
+            long next;
+            while ((next = readLine(in, line, offset)) >= 0) {
+                String text = line.toString(StandardCharsets.UTF_8);
+                if (!text.isBlank()) {
+                    boolean isLive = isLive(text);
+                    out.writeLong(isLive ? offset : -offset - 1);
+                    if (!isLive) {
+                        addTombstone(recordCount);
+                    }
+                    recordCount++;
+                }
+                offset = next;
+            }
+        }
+    }
+
+    private static boolean isLive(String line) {
+        return !line.isBlank() && line.charAt(0) != TOMBSTONE;
+    }
+
+    private static boolean readLine(InputStream in, ByteArrayOutputStream line) throws IOException {
+        return readLine(in, line, 0) >= 0;
+    }
+
+    /**
+     * Reads the next line into {@code line}, without its line break.
+     *
+     * @return Offset of the following line, or -1 at the end of the stream.
+     */
+    private static long readLine(InputStream in, ByteArrayOutputStream line, long offset) throws IOException {
+        line.reset();
+        int b = in.read();
+        if (b < 0) {
+            return -1;
+        }
+        while (b >= 0 && b != '\n') {
+            line.write(b);
+            offset++;
+            b = in.read();
+        }
+        return b < 0 ? offset : offset + 1;
+    }
+
+    private static String readLine(RandomAccessFile in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        byte[] buffer = new byte[256];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == '\n') {
+                    line.write(buffer, 0, i);
+                    return line.toString(StandardCharsets.UTF_8).stripTrailing();
+                }
+            }
+            line.write(buffer, 0, read);
+        }
+        return line.toString(StandardCharsets.UTF_8).stripTrailing();
+    }
+
+    private static void putLong(byte[] bytes, int at, long value) {
+        for (int i = 0; i < Long.BYTES; i++) {
+            bytes[at + i] = (byte) (value >>> (56 - 8 * i));
+        }
+    }
+}
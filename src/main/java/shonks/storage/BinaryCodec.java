@@ -0,0 +1,185 @@
+package shonks.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import shonks.ShonksException;
+import shonks.task.Deadline;
+import shonks.task.DescriptionPool;
+import shonks.task.Event;
+import shonks.task.Task;
+import shonks.task.Todo;
+
+/**
+ * Reads and writes the compact binary save format.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ * magic      4 bytes  0x89 'S' 'H' 'K'
+ * version    1 byte
+ * headers    int count, then count x (string key, string value)
+ * tasks      int count, then count x record
+ * record     1 byte   type in bits 0-1 (0 todo, 1 deadline, 2 event), done in bit 7
+ *            string   description
+ *            deadline: long epoch day
+ *            event:    long epoch second + int nano, twice (from, to; UTC)
+ * string     int length, then that many bytes of UTF-8
+ * </pre>
+ * Nothing is parsed from text, so loading avoids regex splitting and date parsing entirely.
+ */
+class BinaryCodec {
+    static final byte[] MAGIC = {(byte) 0x89, 'S', 'H', 'K'};
+    static final int VERSION = 1;
+
+    static final int TYPE_TODO = 0;
+    static final int TYPE_DEADLINE = 1;
+    static final int TYPE_EVENT = 2;
+    static final int TYPE_MASK = 0x03;
+    private static final int DONE_BIT = 0x80;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Returns whether the given file starts with the binary format's magic bytes.
+     */
+    static boolean isBinary(File file) throws IOException {
+        if (!file.exists() || file.length() < MAGIC.length) {
+            return false;
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] head = in.readNBytes(MAGIC.length);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (head[i] != MAGIC[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Writes the tasks to the given stream and flushes it, leaving the stream open.
+     */
+    static void write(OutputStream stream, List<Task> tasks, Map<String, String> headers) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, BUFFER_SIZE));
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(headers.size());
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            writeString(out, header.getKey());
+            writeString(out, header.getValue());
+        }
+        out.writeInt(tasks.size());
+        for (Task task : tasks) {
+            assert task != null : "Task in list should not be null";
+            writeTask(out, task);
+        }
+        out.flush();
+    }
+
+    private static void writeTask(DataOutputStream out, Task task) throws IOException {
+        int type = task instanceof Deadline ? TYPE_DEADLINE : task instanceof Event ? TYPE_EVENT : TYPE_TODO;
+        out.writeByte(type | (task.isDone() ? DONE_BIT : 0));
+
+        writeString(out, task.getDescription());
+
+        if (type == TYPE_DEADLINE) {
+            out.writeLong(((Deadline) task).getBy().toEpochDay());
+        } else if (type == TYPE_EVENT) {
+            writeDateTime(out, ((Event) task).getFrom());
+            writeDateTime(out, ((Event) task).getTo());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeDateTime(DataOutputStream out, LocalDateTime dateTime) throws IOException {
+        out.writeLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(dateTime.getNano());
+    }
+
+    static ArrayList<Task> read(File file, ArrayList<Task> tasks, Map<String, String> headers)
+            throws IOException, ShonksException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+            in.skipNBytes(MAGIC.length);
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new ShonksException("Unsupported save file version: " + version);
+            }
+
+            int headerCount = in.readInt();
+            for (int i = 0; i < headerCount; i++) {
+                headers.put(readString(in, 0), readString(in, 0));
+            }
+
+            int count = in.readInt();
+            tasks.ensureCapacity(tasks.size() + count);
+            for (int i = 0; i < count; i++) {
+                tasks.add(readTask(in, i + 1));
+            }
+        } catch (EOFException e) {
+            throw new ShonksException("Corrupted save file: it ends in the middle of a task.");
+        }
+        return tasks;
+    }
+
+    private static Task readTask(DataInputStream in, int recordNumber) throws IOException, ShonksException {
+        int flags = in.readUnsignedByte();
+        String desc = DescriptionPool.intern(readString(in, recordNumber));
+
+        Task task;
+        switch (flags & TYPE_MASK) {
+        case TYPE_TODO:
+            task = new Todo(desc);
+            break;
+        case TYPE_DEADLINE:
+            task = new Deadline(desc, LocalDate.ofEpochDay(in.readLong()));
+            break;
+        case TYPE_EVENT:
+            task = new Event(desc, readDateTime(in), readDateTime(in));
+            break;
+        default:
+            throw new ShonksException("Unknown task type in save file record " + recordNumber + ".");
+        }
+
+        if ((flags & DONE_BIT) != 0) {
+            task.markDone();
+        }
+        return task;
+    }
+
+    private static String readString(DataInputStream in, int recordNumber) throws IOException, ShonksException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new ShonksException("Corrupted save file record " + recordNumber + ".");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static LocalDateTime readDateTime(DataInputStream in) throws IOException {
+        long epochSecond = in.readLong();
+        int nano = in.readInt();
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+}
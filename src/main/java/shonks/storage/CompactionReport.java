@@ -0,0 +1,31 @@
+package shonks.storage;
+
+/**
+ * Describes the outcome of one background journal compaction.
+ */
+public class CompactionReport {
+    public final long durationMillis;
+    public final long bytesReclaimed;
+    public final int tasksWritten;
+    public final String error;          // null if compaction succeeded
+
+    public CompactionReport(long durationMillis, long bytesReclaimed, int tasksWritten, String error) {
+        this.durationMillis = durationMillis;
+        this.bytesReclaimed = bytesReclaimed;
+        this.tasksWritten = tasksWritten;
+        this.error = error;
+    }
+
+    public boolean isSuccessful() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        if (!isSuccessful()) {
+            return "compaction failed after " + durationMillis + " ms: " + error;
+        }
+        return "compacted " + tasksWritten + " task(s) in " + durationMillis + " ms, reclaimed "
+                + bytesReclaimed + " bytes";
+    }
+}
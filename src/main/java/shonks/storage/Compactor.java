@@ -0,0 +1,56 @@
+package shonks.storage;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs journal compactions one at a time on a background daemon thread,
+ * so the command loop never waits for a snapshot to be written.
+ */
+class Compactor {
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "shonks-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Future<CompactionReport> pending;
+    private volatile CompactionReport lastReport;
+
+    boolean isRunning() {
+        return pending != null && !pending.isDone();
+    }
+
+    void submit(Callable<CompactionReport> compaction) {
+        assert !isRunning() : "Only one compaction should run at a time";
+        pending = executor.submit(() -> {
+            CompactionReport report = compaction.call();
+            lastReport = report;
+            return report;
+        });
+    }
+
+    /**
+     * Blocks until the running compaction, if any, has finished.
+     */
+    void await() {
+        if (pending == null) {
+            return;
+        }
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            lastReport = new CompactionReport(0, 0, 0, String.valueOf(e.getCause()));
+        }
+        pending = null;
+    }
+
+    CompactionReport lastReport() {
+        return lastReport;
+    }
+}
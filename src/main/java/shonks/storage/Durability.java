@@ -0,0 +1,17 @@
+package shonks.storage;
+
+/**
+ * How hard a save tries to reach stable storage before it returns.
+ * <p>
+ * Every policy writes the new snapshot to a temp file and atomically renames it over the data
+ * file, so a crash never leaves a half-written data file behind. The policies differ in what
+ * survives a power loss right after the save.
+ */
+public enum Durability {
+    /** No fsync; the OS writes the file back later. Fastest, may lose the latest saves. */
+    NONE,
+    /** Fsyncs the temp file before the rename, so the renamed file is never empty or torn. */
+    FILE,
+    /** Also fsyncs the data folder, so the rename itself is on disk when the save returns. */
+    FILE_AND_DIRECTORY
+}
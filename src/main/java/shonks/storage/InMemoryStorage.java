@@ -0,0 +1,146 @@
+package shonks.storage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import shonks.ShonksException;
+import shonks.task.Task;
+import shonks.task.TaskList;
+
+/**
+ * Storage backend that keeps everything in memory and never touches the disk.
+ * <p>
+ * Tasks are still encoded with {@link Task#toStorageString()} on every write and decoded on
+ * load, so commands pay the same per-task encoding cost as with {@link Storage}, minus the
+ * I/O. Mutations are applied one task at a time through the log methods. Nothing survives the
+ * process; use it for tests and for measuring command throughput.
+ */
+public class InMemoryStorage implements StorageBackend {
+    private final Map<Long, String> saved = new LinkedHashMap<>();    // task id -> storage string
+    private final List<String> archived = new ArrayList<>();
+
+    @Override
+    public synchronized TaskList load() throws ShonksException {
+        ArrayList<Task> tasks = new ArrayList<>(saved.size());
+        for (Map.Entry<Long, String> entry : saved.entrySet()) {
+            Task task = Task.fromStorageString(entry.getValue());
+            task.assignId(entry.getKey());
+            tasks.add(task);
+        }
+        return new TaskList(tasks);
+    }
+
+    @Override
+    public TaskList loadLazily(int cacheSize) throws ShonksException {
+        return load();
+    }
+
+    @Override
+    public synchronized void save(List<Task> tasks) {
+        saved.clear();
+        for (Task task : tasks) {
+            saved.put(task.getId(), task.toStorageString());
+        }
+    }
+
+    @Override
+    public void requestSave(TaskList tasks) {
+        if (!tasks.isDirty()) {
+            return;
+        }
+        long modCount = tasks.getModCount();
+        save(tasks.asList());
+        tasks.markPersisted(modCount);
+    }
+
+    @Override
+    public boolean isIncremental() {
+        return true;
+    }
+
+    @Override
+    public synchronized void logAdd(Task task) {
+        // Ids only grow, so appending keeps the map in list order.
+        saved.put(task.getId(), task.toStorageString());
+    }
+
+    @Override
+    public synchronized void logMark(Task task) {
+        saved.replace(task.getId(), task.toStorageString());
+    }
+
+    @Override
+    public synchronized void logUnmark(Task task) {
+        saved.replace(task.getId(), task.toStorageString());
+    }
+
+    @Override
+    public synchronized void logDelete(Task task) {
+        saved.remove(task.getId());
+    }
+
+    @Override
+    public synchronized void logClear() {
+        saved.clear();
+    }
+
+    @Override
+    public void compactIfNeeded(TaskList tasks) {
+        // Every log method already leaves the saved state compact.
+    }
+
+    @Override
+    public void enableWriteBehind(TaskList tasks, long flushDelayMillis) {
+        // Writes are as cheap as the background writer would make them.
+    }
+
+    @Override
+    public void sync() {
+    }
+
+    @Override
+    public String takeSaveFailure() {
+        return null;
+    }
+
+    @Override
+    public CompactionReport getLastCompaction() {
+        return null;
+    }
+
+    @Override
+    public synchronized void archive(List<Task> tasks) {
+        for (Task task : tasks) {
+            archived.add(task.toStorageString());
+        }
+    }
+
+    @Override
+    public synchronized int archivedCount() {
+        return archived.size();
+    }
+
+    @Override
+    public synchronized Task restoreFromArchive(int index) throws ShonksException {
+        if (index < 0 || index >= archived.size()) {
+            throw new ShonksException("That archived task number does not exist.");
+        }
+        return Task.fromStorageString(archived.remove(index));
+    }
+
+    @Override
+    public synchronized List<Task> restoreAllFromArchive() throws ShonksException {
+        List<Task> tasks = new ArrayList<>(archived.size());
+        for (String line : archived) {
+            tasks.add(Task.fromStorageString(line));
+        }
+        archived.clear();
+        return tasks;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,349 @@
+package shonks.storage;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import shonks.ShonksException;
+import shonks.task.Task;
+import shonks.task.TaskList;
+
+/**
+ * Append-only log of task mutations, replayed on top of the base snapshot on startup.
+ * <p>
+ * Each record is one line that refers to tasks by their stable id:
+ * <pre>
+ * A | id | TYPE | 0/1 | description | (extra...)   add
+ * M | id                                          mark
+ * U | id                                          unmark
+ * D | id                                          delete
+ * C                                               clear
+ * G | gen                                         first line: snapshot generation
+ * </pre>
+ * Appending one record is O(1) regardless of how many tasks are in the list.
+ * <p>
+ * During compaction the live journal is renamed to {@code <path>.prev} and a fresh one is
+ * started for the next snapshot generation, so the generation header tells {@link #recover}
+ * which files still apply to the snapshot that is actually on disk.
+ * <p>
+ * With group commit on, records are buffered and only reach the file on {@link #flush()},
+ * so a burst of mutations costs one write. The writer thread flushes while commands append,
+ * hence the methods touching the open file are synchronized.
+ */
+class Journal {
+    static final String ADD = "A";
+    static final String MARK = "M";
+    static final String UNMARK = "U";
+    static final String DELETE = "D";
+    static final String CLEAR = "C";
+    static final String GENERATION = "G";
+
+    private static final String SEPARATOR = " | ";
+
+    private final File file;
+    private final File prevFile;
+    private BufferedWriter writer;
+    private long generation;
+    private int recordCount;
+    private long byteCount;
+    private boolean isGroupCommit;
+
+    Journal(String path) {
+        assert path != null && !path.isEmpty() : "Journal path should be non-empty";
+        this.file = new File(path);
+        this.prevFile = new File(path + ".prev");
+    }
+
+    /**
+     * Sets the snapshot generation that newly started journal files belong to.
+     */
+    void setGeneration(long generation) {
+        this.generation = generation;
+    }
+
+    /**
+     * Sets whether appended records wait for {@link #flush()} instead of being flushed at once.
+     */
+    void setGroupCommit(boolean isGroupCommit) {
+        this.isGroupCommit = isGroupCommit;
+    }
+
+    int recordCount() {
+        return recordCount;
+    }
+
+    long byteCount() {
+        return byteCount;
+    }
+
+    boolean hasPrev() {
+        return prevFile.exists();
+    }
+
+    long prevByteCount() {
+        return prevFile.length();
+    }
+
+    void appendAdd(Task task) throws ShonksException {
+        append(ADD + SEPARATOR + task.getId() + SEPARATOR + task.toStorageString());
+    }
+
+    void appendMark(Task task) throws ShonksException {
+        append(MARK + SEPARATOR + task.getId());
+    }
+
+    void appendUnmark(Task task) throws ShonksException {
+        append(UNMARK + SEPARATOR + task.getId());
+    }
+
+    void appendDelete(Task task) throws ShonksException {
+        append(DELETE + SEPARATOR + task.getId());
+    }
+
+    void appendClear() throws ShonksException {
+        append(CLEAR);
+    }
+
+    private synchronized void append(String record) throws ShonksException {
+        try {
+            if (writer == null) {
+                File parent = file.getParentFile();
+                if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                    throw new ShonksException("Could not create data folder.");
+                }
+                boolean isFresh = file.length() == 0;
+                writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                if (isFresh) {
+                    writeLine(GENERATION + SEPARATOR + generation);
+                }
+            }
+            writeLine(record);
+            recordCount++;
+            if (!isGroupCommit) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            throw new ShonksException("Error writing journal.");
+        }
+    }
+
+    /**
+     * Writes out records buffered by group commit.
+     */
+    synchronized void flush() throws ShonksException {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new ShonksException("Error writing journal.");
+        }
+    }
+
+    private void writeLine(String line) throws IOException {
+        writer.write(line);
+        writer.newLine();
+        byteCount += line.getBytes(StandardCharsets.UTF_8).length + System.lineSeparator().length();
+    }
+
+    boolean exists() {
+        return file.exists() || prevFile.exists();
+    }
+
+    /**
+     * Discards all records, e.g. after a full snapshot has been written.
+     */
+    synchronized void truncate() throws ShonksException {
+        close();
+        if (file.exists() && !file.delete()) {
+            throw new ShonksException("Error truncating journal.");
+        }
+        deletePrev();
+        recordCount = 0;
+        byteCount = 0;
+    }
+
+    /**
+     * Moves the live journal aside and starts a new one for the next snapshot generation.
+     * Records appended from now on are replayed on top of the snapshot being compacted.
+     *
+     * @param nextGeneration Generation of the snapshot being written.
+     */
+    synchronized void rotate(long nextGeneration) throws ShonksException {
+        assert !prevFile.exists() : "Previous journal should have been compacted already";
+        close();
+        if (file.exists() && !file.renameTo(prevFile)) {
+            throw new ShonksException("Error rotating journal.");
+        }
+        generation = nextGeneration;
+        recordCount = 0;
+        byteCount = 0;
+    }
+
+    /**
+     * Deletes the rotated journal once the snapshot that absorbed it is in place.
+     */
+    void deletePrev() throws ShonksException {
+        if (prevFile.exists() && !prevFile.delete()) {
+            throw new ShonksException("Error truncating journal.");
+        }
+    }
+
+    synchronized void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            // Nothing sensible to do; without group commit every record was already flushed.
+        }
+        writer = null;
+    }
+
+    /**
+     * Replays the journal files that still apply to the snapshot on disk.
+     * <p>
+     * A rotated journal applies only if its snapshot was never replaced, i.e. compaction
+     * did not finish. The live journal applies to the snapshot's own generation, or to the
+     * next one when the rotated journal was replayed first. Anything else is stale and
+     * already contained in the snapshot.
+     *
+     * @param tasks Tasks from the base snapshot, with their stable ids assigned.
+     * @param snapshotGeneration Generation recorded in the snapshot header.
+     * @throws ShonksException If a journal cannot be read or is corrupted.
+     */
+    void recover(TaskList tasks, long snapshotGeneration) throws ShonksException {
+        generation = snapshotGeneration;
+        recordCount = 0;
+        byteCount = 0;
+
+        List<String> prevLines = readLines(prevFile);
+        boolean isPrevLive = !prevLines.isEmpty() && generationOf(prevLines) == snapshotGeneration;
+        if (isPrevLive) {
+            replay(prevLines, tasks);
+        }
+
+        List<String> lines = readLines(file);
+        long fileGeneration = generationOf(lines);
+        boolean isLive = fileGeneration == snapshotGeneration
+                || (isPrevLive && fileGeneration == snapshotGeneration + 1);
+        if (isLive) {
+            replay(lines, tasks);
+            recordCount = lines.size();
+            byteCount = file.length();
+        }
+    }
+
+    /**
+     * Returns the generation header of the given journal lines.
+     * Journals written before generations existed belong to generation 0.
+     */
+    private static long generationOf(List<String> lines) {
+        if (lines.isEmpty() || !lines.get(0).startsWith(GENERATION + SEPARATOR)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(lines.get(0).substring(GENERATION.length() + SEPARATOR.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static List<String> readLines(File file) throws ShonksException {
+        List<String> lines = new ArrayList<>();
+        if (!file.exists()) {
+            return lines;
+        }
+        // Unlike Files.newBufferedReader, this replaces malformed bytes instead of failing,
+        // so a record torn in the middle of a character is dropped like any other torn record.
+        try (BufferedReader br = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(file.toPath()), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (!line.isBlank()) {
+                    lines.add(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new ShonksException("Error loading journal.");
+        }
+        return lines;
+    }
+
+    /**
+     * Replays journal records in order.
+     * <p>
+     * A malformed final line is treated as a torn write from a crash and ignored;
+     * a malformed line anywhere else means the journal is corrupted.
+     */
+    private static void replay(List<String> lines, TaskList tasks) throws ShonksException {
+        for (int i = 0; i < lines.size(); i++) {
+            try {
+                apply(lines.get(i), tasks);
+            } catch (ShonksException | RuntimeException e) {
+                if (i < lines.size() - 1) {
+                    throw new ShonksException("Corrupted journal line " + (i + 1) + ": " + lines.get(i));
+                }
+            }
+        }
+    }
+
+    private static void apply(String record, TaskList tasks) throws ShonksException {
+        if (record.equals(CLEAR)) {
+            tasks.clear();
+            return;
+        }
+        if (record.startsWith(GENERATION + SEPARATOR)) {
+            return;
+        }
+
+        String[] parts = record.split(" \\| ", 3);
+        if (parts.length < 2) {
+            throw new ShonksException("Corrupted journal line: " + record);
+        }
+        long id = Long.parseLong(parts[1]);
+
+        switch (parts[0]) {
+        case ADD:
+            if (parts.length < 3) {
+                throw new ShonksException("Corrupted journal line: " + record);
+            }
+            if (tasks.indexOfId(id) >= 0) {
+                return; // already part of the snapshot
+            }
+            Task task = Task.fromStorageString(parts[2]);
+            task.assignId(id);
+            tasks.add(task);
+            break;
+        case MARK:
+            tasks.markDone(requireIndex(tasks, id, record));
+            break;
+        case UNMARK:
+            tasks.unmarkDone(requireIndex(tasks, id, record));
+            break;
+        case DELETE:
+            tasks.remove(requireIndex(tasks, id, record));
+            break;
+        default:
+            throw new ShonksException("Corrupted journal line: " + record);
+        }
+    }
+
+    private static int requireIndex(TaskList tasks, long id, String record) throws ShonksException {
+        int index = tasks.indexOfId(id);
+        if (index < 0) {
+            throw new ShonksException("Journal refers to unknown task: " + record);
+        }
+        return index;
+    }
+}
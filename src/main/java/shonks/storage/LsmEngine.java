@@ -0,0 +1,599 @@
+package shonks.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Small log-structured key-value store mapping task ids to task lines.
+ * <p>
+ * Writes go to an in-memory sorted memtable and a write-ahead log. Once the memtable holds
+ * {@code memtableLimit} entries it is written out as a new immutable {@link LsmSegment} and
+ * the log starts over. Whenever the {@value #MERGE_FAN_IN} newest segments are on the same
+ * level, a background merge combines them into one segment on the next level, so there are
+ * O(log n) segments and every entry is rewritten O(log n) times. Deletions are kept as
+ * markers until a merge reaches the oldest segment.
+ * <p>
+ * Files in the engine's directory:
+ * <pre>
+ * MANIFEST          "number level" per live segment, oldest first
+ * segment-N.sst     immutable segments
+ * wal.log           writes not yet in a segment: byte op, long id (, UTF-8 line)
+ * </pre>
+ * A segment only counts once the manifest, which is replaced atomically, lists it. Files
+ * left behind by an interrupted flush or merge are deleted on open, and a torn record at the
+ * end of the log is cut off.
+ */
+class LsmEngine {
+    static final int DEFAULT_MEMTABLE_LIMIT = 64 * 1024;
+
+    private static final int MERGE_FAN_IN = 4;
+    private static final String MANIFEST_NAME = "MANIFEST";
+    private static final String WAL_NAME = "wal.log";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".sst";
+    private static final byte PUT = 'P';
+    private static final byte DELETE = 'D';
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * One id and its task line, or a null line if the id was deleted.
+     */
+    static final class Entry {
+        final long id;
+        final String line;
+
+        Entry(long id, String line) {
+            this.id = id;
+            this.line = line;
+        }
+    }
+
+    private final File dir;
+    private final File manifestFile;
+    private final File walFile;
+    private final int memtableLimit;
+    private final Compactor merger = new Compactor();
+    private final List<LsmSegment> segments = new ArrayList<>();    // oldest first, guarded by this
+    private TreeMap<Long, String> memtable = new TreeMap<>();       // null line = deleted
+    private FileOutputStream walFileOut;
+    private DataOutputStream wal;
+    private int nextNumber = 1;
+    private boolean isMerging;                                      // guarded by this
+
+    private LsmEngine(File dir, int memtableLimit) {
+        this.dir = dir;
+        this.manifestFile = new File(dir, MANIFEST_NAME);
+        this.walFile = new File(dir, WAL_NAME);
+        this.memtableLimit = memtableLimit;
+    }
+
+    /**
+     * Opens the engine in the given directory, creating it if needed and replaying the log.
+     */
+    static LsmEngine open(File dir, int memtableLimit) throws IOException {
+        assert memtableLimit > 0 : "Memtable limit should be positive";
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Could not create " + dir);
+        }
+        LsmEngine engine = new LsmEngine(dir, memtableLimit);
+        engine.readManifest();
+        engine.deleteUnlistedSegments();
+        engine.replayWal();
+        return engine;
+    }
+
+    /**
+     * Returns the task line stored for the id, or null if there is none.
+     */
+    synchronized String get(long id) throws IOException {
+        if (memtable.containsKey(id)) {
+            return memtable.get(id);
+        }
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            Entry entry = segments.get(i).get(id);
+            if (entry != null) {
+                return entry.line;
+            }
+        }
+        return null;
+    }
+
+    synchronized void put(long id, String line) throws IOException {
+        assert line != null : "Task line should not be null";
+        appendWal(PUT, id, line);
+        memtable.put(id, line);
+        flushIfFull();
+    }
+
+    synchronized void delete(long id) throws IOException {
+        appendWal(DELETE, id, null);
+        if (segments.isEmpty()) {
+            memtable.remove(id);
+        } else {
+            memtable.put(id, null);
+        }
+        flushIfFull();
+    }
+
+    /**
+     * Deletes everything. Waits for a running merge first, as it reads the segments.
+     */
+    void clear() throws IOException {
+        merger.await();
+        synchronized (this) {
+            List<LsmSegment> old = new ArrayList<>(segments);
+            segments.clear();
+            writeManifest();
+            resetWal();
+            memtable = new TreeMap<>();
+            deleteSegmentFiles(old);
+        }
+    }
+
+    /**
+     * Replaces everything with the given entries, sorted by increasing id, written straight
+     * into one segment.
+     */
+    void replaceAll(Iterator<Entry> entries) throws IOException {
+        merger.await();
+        synchronized (this) {
+            int number = nextNumber++;
+            LsmSegment written = LsmSegment.write(segmentFile(number), number, 0, entries);
+            LsmSegment segment = written.atLevel(levelFor(written.entryCount()));
+            List<LsmSegment> old = new ArrayList<>(segments);
+            segments.clear();
+            segments.add(segment);
+            writeManifest();
+            resetWal();
+            memtable = new TreeMap<>();
+            deleteSegmentFiles(old);
+        }
+    }
+
+    /**
+     * Opens an iterator over every stored entry in id order, skipping deleted ids. Writes made
+     * after this call are not seen. The caller must close the scan.
+     */
+    synchronized Scan scan() throws IOException {
+        List<Source> sources = new ArrayList<>();
+        try {
+            for (int i = 0; i < segments.size(); i++) {
+                sources.add(new SegmentSource(segments.get(i).cursor(), i));
+            }
+        } catch (IOException e) {
+            for (Source source : sources) {
+                source.close();
+            }
+            throw e;
+        }
+        sources.add(new MemtableSource(new TreeMap<>(memtable).entrySet().iterator(), segments.size()));
+        return new Scan(sources, false);
+    }
+
+    /**
+     * Forces logged writes to disk.
+     */
+    synchronized void sync() throws IOException {
+        if (wal != null) {
+            wal.flush();
+            walFileOut.getFD().sync();
+        }
+    }
+
+    synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    CompactionReport lastMerge() {
+        return merger.lastReport();
+    }
+
+    /**
+     * Waits for a running merge and closes the log.
+     */
+    void close() throws IOException {
+        merger.await();
+        synchronized (this) {
+            closeWal();
+        }
+    }
+
+    private void appendWal(byte op, long id, String line) throws IOException {
+        if (wal == null) {
+            walFileOut = new FileOutputStream(walFile, true);
+            wal = new DataOutputStream(new BufferedOutputStream(walFileOut, BUFFER_SIZE));
+        }
+        wal.writeByte(op);
+        wal.writeLong(id);
+        if (op == PUT) {
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            wal.writeInt(bytes.length);
+            wal.write(bytes);
+        }
+        wal.flush();
+    }
+
+    private void replayWal() throws IOException {
+        if (!walFile.exists()) {
+            return;
+        }
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(walFile), BUFFER_SIZE))) {
+            while (true) {
+                int op = in.read();
+                if (op < 0) {
+                    break;
+                }
+                long id = in.readLong();
+                if (op == PUT) {
+                    byte[] line = new byte[in.readInt()];
+                    in.readFully(line);
+                    memtable.put(id, new String(line, StandardCharsets.UTF_8));
+                    validLength += 1 + Long.BYTES + Integer.BYTES + line.length;
+                } else if (op == DELETE) {
+                    memtable.put(id, null);
+                    validLength += 1 + Long.BYTES;
+                } else {
+                    break;
+                }
+            }
+        } catch (EOFException | NegativeArraySizeException e) {
+            // A record torn by a crash; everything before it is intact.
+        }
+        if (validLength < walFile.length()) {
+            try (RandomAccessFile out = new RandomAccessFile(walFile, "rw")) {
+                out.setLength(validLength);
+            }
+        }
+        flushIfFull();
+    }
+
+    private void flushIfFull() throws IOException {
+        if (memtable.size() < memtableLimit) {
+            return;
+        }
+        int number = nextNumber++;
+        List<Entry> entries = new ArrayList<>(memtable.size());
+        for (Map.Entry<Long, String> entry : memtable.entrySet()) {
+            entries.add(new Entry(entry.getKey(), entry.getValue()));
+        }
+        segments.add(LsmSegment.write(segmentFile(number), number, 0, entries.iterator()));
+        writeManifest();
+        resetWal();
+        memtable = new TreeMap<>();
+
+        if (!isMerging && pickMergeRun() != null) {
+            isMerging = true;
+            merger.await(); // at most the tail of a merge that has just found nothing left to do
+            merger.submit(this::merge);
+        }
+    }
+
+    /**
+     * Returns the oldest {@value #MERGE_FAN_IN} adjacent segments that are all on the same
+     * level, or null if there are none.
+     * <p>
+     * Levels never increase from the oldest segment to the newest, so each level is one block.
+     * Merging the oldest run of a block keeps it that way; merging a newer run would leave
+     * the older part of the block stranded behind a higher level, where it never merges again.
+     */
+    private List<LsmSegment> pickMergeRun() {
+        int runLength = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            boolean isSameLevel = i > 0 && segments.get(i).level == segments.get(i - 1).level;
+            runLength = isSameLevel ? runLength + 1 : 1;
+            if (runLength == MERGE_FAN_IN) {
+                return new ArrayList<>(segments.subList(i + 1 - MERGE_FAN_IN, i + 1));
+            }
+        }
+        return null;
+    }
+
+    private CompactionReport merge() {
+        long start = System.nanoTime();
+        long bytesReclaimed = 0;
+        int entriesWritten = 0;
+        try {
+            while (true) {
+                List<LsmSegment> run;
+                boolean isOldest;
+                int number;
+                synchronized (this) {
+                    run = pickMergeRun();
+                    if (run == null) {
+                        isMerging = false;
+                        break;
+                    }
+                    isOldest = segments.get(0) == run.get(0);
+                    number = nextNumber++;
+                }
+
+                LsmSegment merged = mergeRun(run, number, isOldest);
+                synchronized (this) {
+                    int at = segments.indexOf(run.get(0));
+                    segments.subList(at, at + run.size()).clear();
+                    segments.add(at, merged);
+                    writeManifest();
+                }
+                for (LsmSegment segment : run) {
+                    bytesReclaimed += segment.file.length();
+                }
+                bytesReclaimed -= merged.file.length();
+                entriesWritten += merged.entryCount();
+                deleteSegmentFiles(run);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            synchronized (this) {
+                isMerging = false;
+            }
+            return new CompactionReport(elapsedMillis(start), bytesReclaimed, entriesWritten, e.getMessage());
+        }
+        return new CompactionReport(elapsedMillis(start), bytesReclaimed, entriesWritten, null);
+    }
+
+    private LsmSegment mergeRun(List<LsmSegment> run, int number, boolean isOldest) throws IOException {
+        List<Source> sources = new ArrayList<>();
+        try (Scan scan = new Scan(sources, !isOldest)) {
+            for (int i = 0; i < run.size(); i++) {
+                sources.add(new SegmentSource(run.get(i).cursor(), i));
+            }
+            scan.start();
+            // Deletions only need to be kept while an older segment may still hold the id.
+            return LsmSegment.write(segmentFile(number), number, run.get(0).level + 1, scan);
+        }
+    }
+
+    private int levelFor(int entryCount) {
+        int level = 0;
+        long capacity = memtableLimit;
+        while (entryCount > capacity) {
+            capacity *= MERGE_FAN_IN;
+            level++;
+        }
+        return level;
+    }
+
+    private void readManifest() throws IOException {
+        if (!manifestFile.exists()) {
+            return;
+        }
+        for (String line : Files.readAllLines(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            String[] parts = line.trim().split(" ");
+            int number;
+            int level;
+            try {
+                number = Integer.parseInt(parts[0]);
+                level = Integer.parseInt(parts[1]);
+            } catch (RuntimeException e) {
+                throw new IOException("Corrupted manifest.", e);
+            }
+            segments.add(LsmSegment.open(segmentFile(number), number, level));
+            nextNumber = Math.max(nextNumber, number + 1);
+        }
+    }
+
+    private void writeManifest() throws IOException {
+        File temp = new File(dir, MANIFEST_NAME + ".tmp");
+        FileOutputStream fileOut = new FileOutputStream(temp);
+        try (Writer out = new OutputStreamWriter(new BufferedOutputStream(fileOut), StandardCharsets.UTF_8)) {
+            for (LsmSegment segment : segments) {
+                out.write(segment.number + " " + segment.level + "\n");
+            }
+            out.flush();
+            fileOut.getChannel().force(true);
+        }
+        Storage.moveAtomically(temp, manifestFile);
+    }
+
+    private void deleteUnlistedSegments() {
+        Set<String> listed = new HashSet<>();
+        for (LsmSegment segment : segments) {
+            listed.add(segment.file.getName());
+        }
+        File[] files = dir.listFiles((d, name) -> name.startsWith(SEGMENT_PREFIX) && !listed.contains(name));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    private static void deleteSegmentFiles(List<LsmSegment> old) {
+        for (LsmSegment segment : old) {
+            // A scan may still read it; if the delete fails, the next open cleans it up.
+            segment.file.delete();
+        }
+    }
+
+    private void resetWal() throws IOException {
+        closeWal();
+        Files.deleteIfExists(walFile.toPath());
+    }
+
+    private void closeWal() throws IOException {
+        if (wal != null) {
+            wal.close();
+            wal = null;
+            walFileOut = null;
+        }
+    }
+
+    private File segmentFile(int number) {
+        return new File(dir, SEGMENT_PREFIX + number + SEGMENT_SUFFIX);
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /**
+     * One sorted input of a {@link Scan}. Sources with a higher age are newer and win ties.
+     */
+    private abstract static class Source implements AutoCloseable {
+        final int age;
+        Entry head;
+
+        Source(int age) {
+            this.age = age;
+        }
+
+        /**
+         * Moves {@link #head} to the next entry.
+         *
+         * @return False once the source is exhausted.
+         */
+        abstract boolean advance() throws IOException;
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+
+    private static class SegmentSource extends Source {
+        private final LsmSegment.Cursor cursor;
+
+        SegmentSource(LsmSegment.Cursor cursor, int age) {
+            super(age);
+            this.cursor = cursor;
+        }
+
+        @Override
+        boolean advance() throws IOException {
+            head = cursor.next();
+            return head != null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            cursor.close();
+        }
+    }
+
+    private static class MemtableSource extends Source {
+        private final Iterator<Map.Entry<Long, String>> entries;
+
+        MemtableSource(Iterator<Map.Entry<Long, String>> entries, int age) {
+            super(age);
+            this.entries = entries;
+        }
+
+        @Override
+        boolean advance() {
+            if (!entries.hasNext()) {
+                return false;
+            }
+            Map.Entry<Long, String> entry = entries.next();
+            head = new Entry(entry.getKey(), entry.getValue());
+            return true;
+        }
+    }
+
+    /**
+     * K-way merge of sorted sources, yielding the newest entry for each id. Read errors are
+     * thrown as {@link UncheckedIOException}.
+     */
+    static class Scan implements Iterator<Entry>, AutoCloseable {
+        private final List<Source> sources;
+        private final boolean keepsDeletions;
+        private final PriorityQueue<Source> queue = new PriorityQueue<>((a, b) -> a.head.id != b.head.id
+                ? Long.compare(a.head.id, b.head.id)
+                : Integer.compare(b.age, a.age));
+        private Entry next;
+        private boolean isStarted;
+
+        private Scan(List<Source> sources, boolean keepsDeletions) {
+            this.sources = sources;
+            this.keepsDeletions = keepsDeletions;
+        }
+
+        private void start() throws IOException {
+            for (Source source : sources) {
+                if (source.advance()) {
+                    queue.add(source);
+                }
+            }
+            next = findNext();
+            isStarted = true;
+        }
+
+        private Entry findNext() throws IOException {
+            while (!queue.isEmpty()) {
+                Source newest = queue.poll();
+                Entry entry = newest.head;
+                if (newest.advance()) {
+                    queue.add(newest);
+                }
+                while (!queue.isEmpty() && queue.peek().head.id == entry.id) {
+                    Source older = queue.poll();
+                    if (older.advance()) {
+                        queue.add(older);
+                    }
+                }
+                if (entry.line != null || keepsDeletions) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                if (!isStarted) {
+                    start();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return next != null;
+        }
+
+        @Override
+        public Entry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entry entry = next;
+            try {
+                next = findNext();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return entry;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (Source source : sources) {
+                source.close();
+            }
+        }
+    }
+}
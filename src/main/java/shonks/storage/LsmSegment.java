@@ -0,0 +1,231 @@
+package shonks.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Immutable segment file of an {@link LsmEngine}: entries sorted by task id, followed by a
+ * sparse index holding the id and offset of every {@value #INDEX_INTERVAL}th entry.
+ * <pre>
+ * entries   long id, int length (-1 for a deletion), UTF-8 task line
+ * index     long id, long offset (per indexed entry)
+ * footer    long index offset, int index count, int entry count, int magic
+ * </pre>
+ * The sparse index stays in memory, so a point lookup reads at most one index interval.
+ */
+class LsmSegment {
+    static final int INDEX_INTERVAL = 64;
+
+    private static final int MAGIC = 0x4C534D31;    // "LSM1"
+    private static final int FOOTER_BYTES = Long.BYTES + 3 * Integer.BYTES;
+    private static final int DELETED = -1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    final File file;
+    final int number;
+    final int level;
+    private final long[] indexIds;
+    private final long[] indexOffsets;
+    private final long dataEnd;
+    private final int entryCount;
+
+    private LsmSegment(File file, int number, int level, long[] indexIds, long[] indexOffsets,
+                       long dataEnd, int entryCount) {
+        this.file = file;
+        this.number = number;
+        this.level = level;
+        this.indexIds = indexIds;
+        this.indexOffsets = indexOffsets;
+        this.dataEnd = dataEnd;
+        this.entryCount = entryCount;
+    }
+
+    int entryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Returns this segment filed under another level, e.g. a bulk write as large as a merge.
+     */
+    LsmSegment atLevel(int newLevel) {
+        return new LsmSegment(file, number, newLevel, indexIds, indexOffsets, dataEnd, entryCount);
+    }
+
+    /**
+     * Writes the given entries, which must be sorted by strictly increasing id, to a new
+     * segment file and forces it to disk.
+     */
+    static LsmSegment write(File file, int number, int level, Iterator<LsmEngine.Entry> entries)
+            throws IOException {
+        long[] ids = new long[16];
+        long[] offsets = new long[16];
+        int indexCount = 0;
+        int count = 0;
+        long offset = 0;
+        long lastId = Long.MIN_VALUE;
+
+        FileOutputStream fileOut = new FileOutputStream(file);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, BUFFER_SIZE))) {
+            while (entries.hasNext()) {
+                LsmEngine.Entry entry = entries.next();
+                assert entry.id > lastId : "Segment entries should be sorted by id";
+                lastId = entry.id;
+                if (count % INDEX_INTERVAL == 0) {
+                    if (indexCount == ids.length) {
+                        ids = Arrays.copyOf(ids, indexCount * 2);
+                        offsets = Arrays.copyOf(offsets, indexCount * 2);
+                    }
+                    ids[indexCount] = entry.id;
+                    offsets[indexCount] = offset;
+                    indexCount++;
+                }
+                out.writeLong(entry.id);
+                if (entry.line == null) {
+                    out.writeInt(DELETED);
+                    offset += Long.BYTES + Integer.BYTES;
+                } else {
+                    byte[] line = entry.line.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(line.length);
+                    out.write(line);
+                    offset += Long.BYTES + Integer.BYTES + line.length;
+                }
+                count++;
+            }
+            for (int i = 0; i < indexCount; i++) {
+                out.writeLong(ids[i]);
+                out.writeLong(offsets[i]);
+            }
+            out.writeLong(offset);
+            out.writeInt(indexCount);
+            out.writeInt(count);
+            out.writeInt(MAGIC);
+            out.flush();
+            fileOut.getChannel().force(true);
+        }
+        return new LsmSegment(file, number, level, Arrays.copyOf(ids, indexCount),
+                Arrays.copyOf(offsets, indexCount), offset, count);
+    }
+
+    /**
+     * Opens an existing segment file, reading only its footer and sparse index.
+     */
+    static LsmSegment open(File file, int number, int level) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            if (in.length() < FOOTER_BYTES) {
+                throw new IOException("Truncated segment " + file.getName());
+            }
+            in.seek(in.length() - FOOTER_BYTES);
+            long indexOffset = in.readLong();
+            int indexCount = in.readInt();
+            int count = in.readInt();
+            if (in.readInt() != MAGIC
+                    || indexOffset + (long) indexCount * 2 * Long.BYTES != in.length() - FOOTER_BYTES) {
+                throw new IOException("Corrupted segment " + file.getName());
+            }
+
+            byte[] index = new byte[indexCount * 2 * Long.BYTES];
+            in.seek(indexOffset);
+            in.readFully(index);
+            DataInputStream indexIn = new DataInputStream(new ByteArrayInputStream(index));
+            long[] ids = new long[indexCount];
+            long[] offsets = new long[indexCount];
+            for (int i = 0; i < indexCount; i++) {
+                ids[i] = indexIn.readLong();
+                offsets[i] = indexIn.readLong();
+            }
+            return new LsmSegment(file, number, level, ids, offsets, indexOffset, count);
+        }
+    }
+
+    /**
+     * Looks up one id: a binary search over the sparse index, then a scan of one interval.
+     *
+     * @return The entry, whose line is null if the id was deleted, or null if the segment
+     *     does not mention the id.
+     */
+    LsmEngine.Entry get(long id) throws IOException {
+        int at = Arrays.binarySearch(indexIds, id);
+        int block = at >= 0 ? at : -at - 2;
+        if (block < 0) {
+            return null;
+        }
+        long end = block + 1 < indexOffsets.length ? indexOffsets[block + 1] : dataEnd;
+        int length = (int) (end - indexOffsets[block]);
+
+        byte[] data = new byte[length];
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            in.seek(indexOffsets[block]);
+            in.readFully(data);
+        }
+        DataInputStream blockIn = new DataInputStream(new ByteArrayInputStream(data));
+        for (int i = 0; i < INDEX_INTERVAL && blockIn.available() > 0; i++) {
+            LsmEngine.Entry entry = readEntry(blockIn);
+            if (entry.id >= id) {
+                return entry.id == id ? entry : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Opens a cursor over every entry in id order. The caller must close it.
+     */
+    Cursor cursor() throws IOException {
+        return new Cursor();
+    }
+
+    private static LsmEngine.Entry readEntry(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        int length = in.readInt();
+        if (length == DELETED) {
+            return new LsmEngine.Entry(id, null);
+        }
+        byte[] line = new byte[length];
+        in.readFully(line);
+        return new LsmEngine.Entry(id, new String(line, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sequential reader over a segment's entries.
+     */
+    class Cursor implements AutoCloseable {
+        private final DataInputStream in;
+        private int remaining = entryCount;
+
+        private Cursor() throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+        }
+
+        /**
+         * Returns the next entry, or null once every entry has been read.
+         */
+        LsmEngine.Entry next() throws IOException {
+            if (remaining == 0) {
+                return null;
+            }
+            remaining--;
+            try {
+                return readEntry(in);
+            } catch (EOFException e) {
+                throw new IOException("Truncated segment " + file.getName(), e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package shonks.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import shonks.ShonksException;
+import shonks.task.Task;
+import shonks.task.TaskList;
+
+/**
+ * Storage backend on an embedded log-structured engine ({@link LsmEngine}), for lists too
+ * large to rewrite as one file.
+ * <p>
+ * Tasks are keyed by their stable id. Adding, marking, unmarking or deleting a task is one
+ * O(log n) memtable write plus one write-ahead log record; sorted segment files are written
+ * and merged in the background as the memtable fills up. Loading streams a merge of the
+ * segments in id order and keeps the streamed lines undecoded until a task is accessed.
+ * <p>
+ * The engine lives in its own directory and does not read the single-file formats of
+ * {@link Storage}. The archive is the same {@link SegmentedArchive} that {@link Storage} uses.
+ */
+public class LsmStorage implements StorageBackend {
+    private static final int DEFAULT_CACHE_SIZE = 10_000;
+    private static final int MAX_DATA_SIZE = Integer.MAX_VALUE - 8;    // largest byte[] the VM allows
+
+    private final File dir;
+    private final int memtableLimit;
+    private final ArchiveFile archive;
+    private LsmEngine engine;
+    private CompactionReport reportedMerge;
+
+    /**
+     * Creates a storage backed by an engine directory and an archive file.
+     *
+     * @param dirPath Path to the engine's directory.
+     * @param archivePath Path to the archive file.
+     */
+    public LsmStorage(String dirPath, String archivePath) {
+        this(dirPath, archivePath, LsmEngine.DEFAULT_MEMTABLE_LIMIT);
+    }
+
+    LsmStorage(String dirPath, String archivePath, int memtableLimit) {
+        assert dirPath != null && !dirPath.isEmpty() : "Directory path should be non-empty";
+        this.dir = new File(dirPath);
+        this.memtableLimit = memtableLimit;
+        this.archive = new ArchiveFile(archivePath);
+    }
+
+    private LsmEngine engine() throws ShonksException {
+        if (engine == null) {
+            try {
+                engine = LsmEngine.open(dir, memtableLimit);
+            } catch (IOException e) {
+                throw new ShonksException("Error loading saved data.");
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * Loads the task list lazily with a default cache size, as lists kept in this backend are
+     * usually too large to decode up front.
+     *
+     * @return The lazily decoded task list.
+     * @throws ShonksException If the engine cannot be read.
+     */
+    @Override
+    public TaskList load() throws ShonksException {
+        return loadLazily(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Streams the stored task lines into one buffer without decoding them; each task is
+     * decoded on first access. Lines are checked as they arrive, and lists whose lines do not
+     * fit in one byte array are decoded up front instead.
+     *
+     * @param cacheSize Maximum number of decoded tasks kept in memory.
+     * @return The lazily decoded task list.
+     * @throws ShonksException If the engine cannot be read or holds a corrupted line.
+     */
+    @Override
+    public TaskList loadLazily(int cacheSize) throws ShonksException {
+        byte[] data = new byte[1 << 16];
+        int size = 0;
+        int[] starts = new int[1024];
+        int[] lengths = new int[1024];
+        long[] ids = new long[1024];
+        int count = 0;
+        boolean isTooLarge = false;
+        try (LsmEngine.Scan scan = engine().scan()) {
+            while (scan.hasNext() && !isTooLarge) {
+                LsmEngine.Entry entry = scan.next();
+                byte[] line = entry.line.getBytes(StandardCharsets.UTF_8);
+                isTooLarge = line.length > MAX_DATA_SIZE - size;
+                if (isTooLarge) {
+                    continue;
+                }
+                if (size + line.length > data.length) {
+                    long capacity = Math.max((long) size + line.length, (long) data.length + (data.length >> 1));
+                    data = Arrays.copyOf(data, (int) Math.min(capacity, MAX_DATA_SIZE));
+                }
+                if (count == ids.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                    lengths = Arrays.copyOf(lengths, count * 2);
+                    ids = Arrays.copyOf(ids, count * 2);
+                }
+                System.arraycopy(line, 0, data, size, line.length);
+                RawLines.check(data, size, size + line.length, count + 1);
+                starts[count] = size;
+                lengths[count] = line.length;
+                ids[count] = entry.id;
+                size += line.length;
+                count++;
+            }
+        } catch (IOException | UncheckedIOException e) {
+            throw new ShonksException("Error loading saved data.");
+        }
+        if (isTooLarge) {
+            return loadEagerly();
+        }
+        return TaskList.ofRawLines(data, starts, lengths, ids, count, cacheSize);
+    }
+
+    private TaskList loadEagerly() throws ShonksException {
+        ArrayList<Task> tasks = new ArrayList<>();
+        try (LsmEngine.Scan scan = engine().scan()) {
+            while (scan.hasNext()) {
+                LsmEngine.Entry entry = scan.next();
+                Task task = Task.fromStorageString(entry.line);
+                task.assignId(entry.id);
+                tasks.add(task);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            throw new ShonksException("Error loading saved data.");
+        }
+        return new TaskList(tasks);
+    }
+
+    @Override
+    public void save(List<Task> tasks) throws ShonksException {
+        Iterator<Task> source = tasks.iterator();
+        try {
+            engine().replaceAll(new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return source.hasNext();
+                }
+
+                @Override
+                public LsmEngine.Entry next() {
+                    Task task = source.next();
+                    return new LsmEngine.Entry(task.getId(), task.toStorageString());
+                }
+            });
+        } catch (IOException e) {
+            throw new ShonksException("Error saving data.");
+        }
+    }
+
+    @Override
+    public void requestSave(TaskList tasks) throws ShonksException {
+        if (!tasks.isDirty()) {
+            return;
+        }
+        long modCount = tasks.getModCount();
+        save(tasks.asList());
+        tasks.markPersisted(modCount);
+    }
+
+    @Override
+    public boolean isIncremental() {
+        return true;
+    }
+
+    @Override
+    public void logAdd(Task task) throws ShonksException {
+        put(task);
+    }
+
+    @Override
+    public void logMark(Task task) throws ShonksException {
+        put(task);
+    }
+
+    @Override
+    public void logUnmark(Task task) throws ShonksException {
+        put(task);
+    }
+
+    private void put(Task task) throws ShonksException {
+        try {
+            engine().put(task.getId(), task.toStorageString());
+        } catch (IOException e) {
+            throw new ShonksException("Error saving data.");
+        }
+    }
+
+    @Override
+    public void logDelete(Task task) throws ShonksException {
+        try {
+            engine().delete(task.getId());
+        } catch (IOException e) {
+            throw new ShonksException("Error saving data.");
+        }
+    }
+
+    @Override
+    public void logClear() throws ShonksException {
+        try {
+            engine().clear();
+        } catch (IOException e) {
+            throw new ShonksException("Error saving data.");
+        }
+    }
+
+    @Override
+    public void compactIfNeeded(TaskList tasks) {
+        // The engine schedules its own merges whenever it writes a segment.
+    }
+
+    @Override
+    public void enableWriteBehind(TaskList tasks, long flushDelayMillis) {
+        // A write is already one buffered log record; there is no full save to defer.
+    }
+
+    /**
+     * Forces the engine's write-ahead log to disk.
+     *
+     * @throws ShonksException If writing fails.
+     */
+    @Override
+    public void sync() throws ShonksException {
+        try {
+            engine().sync();
+        } catch (IOException e) {
+            throw new ShonksException("Error saving data.");
+        }
+    }
+
+    /**
+     * Returns why the last background merge failed, once, or null if it did not fail.
+     * The data stays readable either way; the merge is retried with the next segment.
+     *
+     * @return The error message, or null.
+     */
+    @Override
+    public String takeSaveFailure() {
+        CompactionReport report = engine == null ? null : engine.lastMerge();
+        if (report == null || report.isSuccessful() || report == reportedMerge) {
+            return null;
+        }
+        reportedMerge = report;
+        return "Error merging data: " + report.error;
+    }
+
+    /**
+     * Returns the outcome of the engine's most recent background segment merge.
+     *
+     * @return The report, or null if no merge has finished yet.
+     */
+    @Override
+    public CompactionReport getLastCompaction() {
+        return engine == null ? null : engine.lastMerge();
+    }
+
+    /**
+     * Returns the number of segment files the engine currently reads from.
+     *
+     * @return The segment count.
+     * @throws ShonksException If the engine cannot be opened.
+     */
+    public int segmentCount() throws ShonksException {
+        return engine().segmentCount();
+    }
+
+    @Override
+    public void archive(List<Task> tasks) throws ShonksException {
+        archive.append(tasks);
+    }
+
+    @Override
+    public int archivedCount() throws ShonksException {
+        return archive.size();
+    }
+
+    @Override
+    public Task restoreFromArchive(int index) throws ShonksException {
+        return archive.restore(index);
+    }
+
+    @Override
+    public List<Task> restoreAllFromArchive() throws ShonksException {
+        return archive.restoreAll();
+    }
+
+    @Override
+    public void close() {
+        if (engine == null) {
+            return;
+        }
+        try {
+            engine.close();
+        } catch (IOException e) {
+            // Shutting down; every record was already flushed to the log.
+        }
+    }
+}
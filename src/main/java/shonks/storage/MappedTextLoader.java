@@ -0,0 +1,372 @@
+package shonks.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import shonks.ShonksException;
+import shonks.task.Deadline;
+import shonks.task.DescriptionPool;
+import shonks.task.Event;
+import shonks.task.Task;
+import shonks.task.Todo;
+
+/**
+ * Loads the text save format by scanning the bytes of a memory-mapped file.
+ * <p>
+ * Line breaks and {@code " | "} separators are found by hand and fields are decoded straight
+ * into tasks, so no per-line {@code String}, {@code String[]} or regex is created on the hot
+ * path. Lines the fast path does not recognise (unusual spacing, fractional seconds, corrupted
+ * data...) are handed to {@link Task#fromStorageString(String)}, so results and error messages
+ * are exactly those of the line-by-line loader.
+ * <p>
+ * Windows of at least {@link #PARALLEL_THRESHOLD} bytes are split at line breaks into chunks
+ * that are decoded on the common {@link ForkJoinPool} and stitched back together in file order.
+ * Smaller files take the sequential path, which has no task-scheduling overhead.
+ */
+class MappedTextLoader {
+    private static final long WINDOW_SIZE = 1L << 30;
+    private static final int PARALLEL_THRESHOLD = 8 << 20;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final String HEADER_PREFIX = "#";
+    private static final byte[] SEPARATOR = {' ', '|', ' '};
+
+    private byte[] line = new byte[256];
+    private long linesBefore;           // lines in windows that were already decoded
+    private long rangeLine;             // 1-based line within the range being decoded
+
+    /**
+     * Appends every task in the given text save file to {@code tasks}.
+     *
+     * @param file The save file; must exist.
+     * @param tasks List to append to.
+     * @param headers Map that receives any {@code # key | value} header lines.
+     * @return {@code tasks}.
+     */
+    static ArrayList<Task> read(File file, ArrayList<Task> tasks, Map<String, String> headers)
+            throws IOException, ShonksException {
+        MappedTextLoader loader = new MappedTextLoader();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            // Mapped buffers are int-indexed, so very large files are scanned in windows.
+            while (position < size) {
+                long length = Math.min(WINDOW_SIZE, size - position);
+                ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int consumed = loader.decodeLines(window, position + length == size, tasks, headers);
+                if (consumed == 0) {
+                    throw new ShonksException("Save file line is too long.");
+                }
+                position += consumed;
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Decodes all complete lines in the buffer.
+     *
+     * @return Number of bytes consumed; an incomplete last line is left for the next window.
+     */
+    private int decodeLines(ByteBuffer buffer, boolean isLastWindow, ArrayList<Task> tasks,
+                            Map<String, String> headers) throws ShonksException {
+        int end = buffer.limit();
+        if (!isLastWindow) {
+            while (end > 0 && buffer.get(end - 1) != '\n') {
+                end--;
+            }
+        }
+
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        if (end < PARALLEL_THRESHOLD || parallelism < 2) {
+            try {
+                decodeRange(buffer, 0, end, tasks, headers);
+            } catch (ShonksException | RuntimeException e) {
+                throw corruptedLine(linesBefore + rangeLine, e);
+            }
+            linesBefore += rangeLine;
+        } else {
+            decodeParallel(buffer, end, parallelism * CHUNKS_PER_THREAD, tasks, headers);
+        }
+        return end;
+    }
+
+    /**
+     * Decodes the lines in {@code [from, to)}. Afterwards {@link #rangeLine} is the number of
+     * lines in the range or, on failure, the number of the offending line within the range.
+     */
+    private void decodeRange(ByteBuffer buffer, int from, int to, ArrayList<Task> tasks,
+                             Map<String, String> headers) throws ShonksException {
+        rangeLine = 0;
+        int start = from;
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == '\n') {
+                rangeLine++;
+                decodeLine(buffer, start, i, tasks, headers);
+                start = i + 1;
+            }
+        }
+        if (start < to) {
+            rangeLine++;
+            decodeLine(buffer, start, to, tasks, headers);
+        }
+    }
+
+    private void decodeParallel(ByteBuffer buffer, int end, int chunkCount, ArrayList<Task> tasks,
+                                Map<String, String> headers) throws ShonksException {
+        List<ForkJoinTask<Chunk>> chunks = new ArrayList<>();
+        int start = 0;
+        for (int i = 1; i <= chunkCount && start < end; i++) {
+            int chunkEnd = i == chunkCount ? end : nextLineStart(buffer, (int) ((long) end * i / chunkCount), end);
+            if (chunkEnd <= start) {
+                continue;
+            }
+            int from = start;
+            ByteBuffer view = buffer.duplicate();
+            chunks.add(ForkJoinPool.commonPool().submit(() -> Chunk.decode(view, from, chunkEnd)));
+            start = chunkEnd;
+        }
+
+        for (ForkJoinTask<Chunk> pending : chunks) {
+            Chunk chunk = pending.join();
+            if (chunk.error != null) {
+                throw corruptedLine(linesBefore + chunk.lineCount, chunk.error);
+            }
+            tasks.addAll(chunk.tasks);
+            headers.putAll(chunk.headers);
+            linesBefore += chunk.lineCount;
+        }
+    }
+
+    private static int nextLineStart(ByteBuffer buffer, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return end;
+    }
+
+    static ShonksException corruptedLine(long lineNumber, Exception cause) {
+        return new ShonksException("Corrupted save file at line " + lineNumber + ": " + cause.getMessage());
+    }
+
+    /**
+     * Result of decoding one chunk of lines on a worker thread.
+     */
+    private static class Chunk {
+        private final ArrayList<Task> tasks = new ArrayList<>();
+        private final Map<String, String> headers = new HashMap<>();
+        private long lineCount;
+        private Exception error;            // lineCount is then the failing line within the chunk
+
+        private static Chunk decode(ByteBuffer buffer, int from, int to) {
+            Chunk chunk = new Chunk();
+            MappedTextLoader loader = new MappedTextLoader();
+            try {
+                loader.decodeRange(buffer, from, to, chunk.tasks, chunk.headers);
+            } catch (ShonksException | RuntimeException e) {
+                chunk.error = e;
+            }
+            chunk.lineCount = loader.rangeLine;
+            return chunk;
+        }
+    }
+
+    private void decodeLine(ByteBuffer buffer, int start, int end, ArrayList<Task> tasks,
+                            Map<String, String> headers) throws ShonksException {
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        int length = end - start;
+        if (isBlank(buffer, start, end)) {
+            return;
+        }
+        if (line.length < length) {
+            line = new byte[Math.max(length, line.length * 2)];
+        }
+        buffer.get(start, line, 0, length);
+
+        if (line[0] == HEADER_PREFIX.charAt(0)) {
+            parseHeader(new String(line, 0, length, StandardCharsets.UTF_8), headers);
+            return;
+        }
+
+        Task task = decodeTask(line, length);
+        if (task == null) {
+            task = Task.fromStorageString(new String(line, 0, length, StandardCharsets.UTF_8));
+        }
+        tasks.add(task);
+    }
+
+    private static boolean isBlank(ByteBuffer buffer, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if ((buffer.get(i) & 0xFF) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a {@code # key | value} header line.
+     */
+    static void parseHeader(String line, Map<String, String> headers) {
+        String[] parts = line.substring(HEADER_PREFIX.length()).split(" \\| ", 2);
+        if (parts.length == 2) {
+            headers.put(parts[0].trim(), parts[1].trim());
+        }
+    }
+
+    /**
+     * Decodes one canonical {@code TYPE | 0/1 | description | ...} line.
+     *
+     * @return The task, or null if the line is not in canonical form.
+     */
+    private static Task decodeTask(byte[] b, int length) {
+        int typeEnd = indexOfSeparator(b, 0, length);
+        if (typeEnd != 1) {
+            return null;
+        }
+        int doneStart = typeEnd + SEPARATOR.length;
+        int doneEnd = indexOfSeparator(b, doneStart, length);
+        if (doneEnd != doneStart + 1 || (b[doneStart] != '0' && b[doneStart] != '1')) {
+            return null;
+        }
+        int descStart = doneEnd + SEPARATOR.length;
+        int descEnd = fieldEnd(b, descStart, length);
+        if (descEnd == descStart) {
+            return null;
+        }
+        String description = DescriptionPool.intern(
+                new String(b, descStart, descEnd - descStart, StandardCharsets.UTF_8));
+
+        Task task;
+        switch (b[0]) {
+        case 'T':
+            task = new Todo(description);
+            break;
+        case 'D':
+            if (descEnd == length) {
+                return null;
+            }
+            int byStart = descEnd + SEPARATOR.length;
+            LocalDate by = parseDate(b, byStart, fieldEnd(b, byStart, length));
+            if (by == null) {
+                return null;
+            }
+            task = new Deadline(description, by);
+            break;
+        case 'E':
+            if (descEnd == length) {
+                return null;
+            }
+            int fromStart = descEnd + SEPARATOR.length;
+            int fromEnd = fieldEnd(b, fromStart, length);
+            if (fromEnd == length) {
+                return null;
+            }
+            int toStart = fromEnd + SEPARATOR.length;
+            LocalDateTime from = parseDateTime(b, fromStart, fromEnd);
+            LocalDateTime to = parseDateTime(b, toStart, fieldEnd(b, toStart, length));
+            if (from == null || to == null) {
+                return null;
+            }
+            task = new Event(description, from, to);
+            break;
+        default:
+            return null;
+        }
+
+        if (b[doneStart] == '1') {
+            task.markDone();
+        }
+        return task;
+    }
+
+    private static int indexOfSeparator(byte[] b, int from, int length) {
+        for (int i = from; i + SEPARATOR.length <= length; i++) {
+            if (b[i] == ' ' && b[i + 1] == '|' && b[i + 2] == ' ') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int fieldEnd(byte[] b, int from, int length) {
+        int end = indexOfSeparator(b, from, length);
+        return end < 0 ? length : end;
+    }
+
+    /**
+     * Parses {@code yyyy-MM-dd}, or returns null for anything else.
+     */
+    private static LocalDate parseDate(byte[] b, int start, int end) {
+        if (end - start != 10 || b[start + 4] != '-' || b[start + 7] != '-') {
+            return null;
+        }
+        int year = digits(b, start, 4);
+        int month = digits(b, start + 5, 2);
+        int day = digits(b, start + 8, 2);
+        if (year < 0 || month < 0 || day < 0) {
+            return null;
+        }
+        try {
+            return LocalDate.of(year, month, day);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses {@code yyyy-MM-ddTHH:mm} or {@code yyyy-MM-ddTHH:mm:ss}, or returns null for anything else.
+     */
+    private static LocalDateTime parseDateTime(byte[] b, int start, int end) {
+        int length = end - start;
+        if ((length != 16 && length != 19) || b[start + 10] != 'T' || b[start + 13] != ':') {
+            return null;
+        }
+        LocalDate date = parseDate(b, start, start + 10);
+        int hour = digits(b, start + 11, 2);
+        int minute = digits(b, start + 14, 2);
+        int second = 0;
+        if (length == 19) {
+            second = b[start + 16] == ':' ? digits(b, start + 17, 2) : -1;
+        }
+        if (date == null || hour < 0 || minute < 0 || second < 0) {
+            return null;
+        }
+        try {
+            return date.atTime(hour, minute, second);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the value of {@code count} ASCII digits, or -1 if any byte is not a digit.
+     */
+    private static int digits(byte[] b, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = b[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
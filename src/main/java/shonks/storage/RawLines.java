@@ -0,0 +1,201 @@
+package shonks.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import shonks.ShonksException;
+import shonks.task.Task;
+
+/**
+ * Locates the task lines of a text save file without decoding them.
+ * Used to build a lazily decoded {@link shonks.task.TaskList}.
+ * <p>
+ * Each line is still checked as it is found, so a corrupted file fails to load instead of
+ * failing whichever command first touches the bad task. Lines in the usual layout are checked
+ * byte by byte without being decoded; anything else is decoded once with
+ * {@link Task#fromStorageString(String)} and then dropped.
+ */
+class RawLines {
+    final int[] starts;
+    final int[] lengths;
+    final int count;
+
+    private RawLines(int[] starts, int[] lengths, int count) {
+        this.starts = starts;
+        this.lengths = lengths;
+        this.count = count;
+    }
+
+    /**
+     * Finds every non-blank, non-header line in the given file contents.
+     *
+     * @param data Bytes of a text save file.
+     * @param headers Map that receives any {@code # key | value} header lines.
+     * @return The offsets and lengths of the task lines.
+     * @throws ShonksException If a task line is corrupted.
+     */
+    static RawLines index(byte[] data, Map<String, String> headers) throws ShonksException {
+        int[] starts = new int[Math.max(16, data.length / 32)];
+        int[] lengths = new int[starts.length];
+        int count = 0;
+
+        int start = 0;
+        long lineNumber = 0;
+        while (start < data.length) {
+            lineNumber++;
+            int end = start;
+            while (end < data.length && data[end] != '\n') {
+                end++;
+            }
+            int next = end + 1;
+            if (end > start && data[end - 1] == '\r') {
+                end--;
+            }
+
+            if (isHeader(data, start, end)) {
+                MappedTextLoader.parseHeader(new String(data, start, end - start, StandardCharsets.UTF_8), headers);
+            } else if (!isBlank(data, start, end)) {
+                check(data, start, end, lineNumber);
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                    lengths = Arrays.copyOf(lengths, count * 2);
+                }
+                starts[count] = start;
+                lengths[count] = end - start;
+                count++;
+            }
+            start = next;
+        }
+        return new RawLines(starts, lengths, count);
+    }
+
+    /**
+     * Throws if the line in {@code [start, end)} is not a task line that decodes.
+     *
+     * @param lineNumber Line number reported in the error.
+     */
+    static void check(byte[] data, int start, int end, long lineNumber) throws ShonksException {
+        if (isWellFormed(data, start, end)) {
+            return;
+        }
+        try {
+            Task.fromStorageString(new String(data, start, end - start, StandardCharsets.UTF_8));
+        } catch (ShonksException | RuntimeException e) {
+            throw MappedTextLoader.corruptedLine(lineNumber, e);
+        }
+    }
+
+    /**
+     * Returns whether the line is a task in the layout {@link Task#toStorageString()} writes,
+     * with a description free of {@code '|'} and dates that parse. False does not mean the
+     * line is corrupted, only that it needs a full decode to tell.
+     */
+    private static boolean isWellFormed(byte[] data, int start, int end) {
+        if (end - start < 9 || !isSeparator(data, start + 1, end) || !isSeparator(data, start + 5, end)
+                || (data[start + 4] != '0' && data[start + 4] != '1')) {
+            return false;
+        }
+        int descriptionEnd = start + 8;
+        while (descriptionEnd < end && data[descriptionEnd] != '|') {
+            descriptionEnd++;
+        }
+        if (data[start] == 'T') {
+            return descriptionEnd == end;
+        }
+        if (descriptionEnd == end || descriptionEnd == start + 8 || !isSeparator(data, descriptionEnd - 1, end)) {
+            return false;
+        }
+        switch (data[start]) {
+        case 'D':
+            return isDate(data, descriptionEnd + 2, end);
+        case 'E':
+            int toStart = descriptionEnd + 2;
+            while (toStart < end && data[toStart] != '|') {
+                toStart++;
+            }
+            return toStart < end && isSeparator(data, toStart - 1, end)
+                    && isDateTime(data, descriptionEnd + 2, toStart - 1) && isDateTime(data, toStart + 2, end);
+        default:
+            return false;
+        }
+    }
+
+    private static boolean isSeparator(byte[] data, int at, int end) {
+        return at + 3 <= end && data[at] == ' ' && data[at + 1] == '|' && data[at + 2] == ' ';
+    }
+
+    /**
+     * Returns whether {@code [from, to)} is a valid {@code yyyy-MM-dd} date.
+     */
+    private static boolean isDate(byte[] data, int from, int to) {
+        if (to - from != 10 || data[from + 4] != '-' || data[from + 7] != '-') {
+            return false;
+        }
+        int year = digits(data, from, 4);
+        int month = digits(data, from + 5, 2);
+        int day = digits(data, from + 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1) {
+            return false;
+        }
+        return day <= lengthOfMonth(year, month);
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+        case 2:
+            return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+        case 4:
+        case 6:
+        case 9:
+        case 11:
+            return 30;
+        default:
+            return 31;
+        }
+    }
+
+    /**
+     * Returns whether {@code [from, to)} is a valid {@code yyyy-MM-ddTHH:mm} date-time, with
+     * optional seconds.
+     */
+    private static boolean isDateTime(byte[] data, int from, int to) {
+        int length = to - from;
+        if ((length != 16 && length != 19) || !isDate(data, from, from + 10)
+                || data[from + 10] != 'T' || data[from + 13] != ':') {
+            return false;
+        }
+        int hour = digits(data, from + 11, 2);
+        int minute = digits(data, from + 14, 2);
+        boolean hasValidSeconds = length == 16
+                || (data[from + 16] == ':' && digits(data, from + 17, 2) >= 0 && digits(data, from + 17, 2) < 60);
+        return hour >= 0 && hour < 24 && minute >= 0 && minute < 60 && hasValidSeconds;
+    }
+
+    /**
+     * Returns the value of {@code count} decimal digits, or -1 if any of them is not a digit.
+     */
+    private static int digits(byte[] data, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            if (data[i] < '0' || data[i] > '9') {
+                return -1;
+            }
+            value = value * 10 + (data[i] - '0');
+        }
+        return value;
+    }
+
+    private static boolean isHeader(byte[] data, int start, int end) {
+        return end > start && data[start] == '#';
+    }
+
+    private static boolean isBlank(byte[] data, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if ((data[i] & 0xFF) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
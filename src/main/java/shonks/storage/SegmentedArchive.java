@@ -0,0 +1,275 @@
+package shonks.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import shonks.ShonksException;
+import shonks.task.Task;
+
+/**
+ * Archive split into rolling segments: new tasks go to an active text segment (an
+ * {@link ArchiveStore} at the archive path), which is sealed into a GZIP-compressed segment
+ * once it reaches the size limit.
+ * <p>
+ * Files for an archive at {@code <path>}:
+ * <pre>
+ * &lt;path&gt;             active segment, with its offset index &lt;path&gt;.idx
+ * &lt;path&gt;.N.gz        sealed segment N, one task line each
+ * &lt;path&gt;.manifest    "N | count" per sealed segment, oldest first
+ * </pre>
+ * Archive positions run through the sealed segments in manifest order, then the active one,
+ * so the manifest counts tell which single segment holds the n-th task. Restoring from a
+ * sealed segment rewrites only that segment, which the size limit keeps small.
+ * <p>
+ * Sealing renames the active segment to {@code <path>.N.txt} first. That rename is the point
+ * of no return: if the seal is interrupted after it, the next open finishes it.
+ */
+class SegmentedArchive {
+    private static final String MANIFEST_SUFFIX = ".manifest";
+    private static final String SEPARATOR = " | ";
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final String path;
+    private final long segmentBytes;
+    private final File manifestFile;
+    private final List<Integer> segmentNumbers = new ArrayList<>();
+    private final List<Integer> segmentCounts = new ArrayList<>();
+    private long manifestLength;
+    private ArchiveStore active;
+
+    private SegmentedArchive(String path, long segmentBytes) {
+        this.path = path;
+        this.segmentBytes = segmentBytes;
+        this.manifestFile = new File(path + MANIFEST_SUFFIX);
+    }
+
+    /**
+     * Opens the archive at the given path, finishing an interrupted seal if there is one.
+     *
+     * @param path Path of the active segment.
+     * @param segmentBytes Size at which the active segment is sealed.
+     */
+    static SegmentedArchive open(String path, long segmentBytes) throws IOException {
+        assert segmentBytes > 0 : "Segment size should be positive";
+        SegmentedArchive archive = new SegmentedArchive(path, segmentBytes);
+        archive.readManifest();
+        File sealing = archive.uncompressedSegment(archive.nextSegmentNumber());
+        if (sealing.exists()) {
+            archive.finishSeal(archive.nextSegmentNumber(), sealing);
+        }
+        archive.active = ArchiveStore.open(path);
+        return archive;
+    }
+
+    /**
+     * Returns whether the files on disk still match what this archive has read.
+     */
+    boolean isCurrent() {
+        return active.isCurrent() && manifestFile.length() == manifestLength;
+    }
+
+    int size() {
+        int size = active.size();
+        for (int count : segmentCounts) {
+            size += count;
+        }
+        return size;
+    }
+
+    /**
+     * Appends tasks to the active segment, sealing it each time it reaches the size limit.
+     */
+    void append(List<Task> tasks) throws IOException {
+        int from = 0;
+        long length = active.length();
+        for (int i = 0; i < tasks.size(); i++) {
+            length += tasks.get(i).toStorageString().length() + 1;
+            if (length >= segmentBytes) {
+                active.append(tasks.subList(from, i + 1));
+                seal();
+                from = i + 1;
+                length = 0;
+            }
+        }
+        active.append(tasks.subList(from, tasks.size()));
+    }
+
+    /**
+     * Removes and returns the task at the given position, touching only the segment holding it.
+     *
+     * @param index 0-based position among all archived tasks.
+     */
+    Task restore(int index) throws IOException, ShonksException {
+        assert index >= 0 && index < size() : "Archive index out of bounds";
+        int remaining = index;
+        for (int i = 0; i < segmentCounts.size(); i++) {
+            int count = segmentCounts.get(i);
+            if (remaining < count) {
+                return restoreFromSegment(i, remaining);
+            }
+            remaining -= count;
+        }
+
+        Task task = active.restore(remaining);
+        active.compactIfNeeded();
+        return task;
+    }
+
+    /**
+     * Returns every archived task, oldest first.
+     */
+    List<Task> readAll() throws IOException, ShonksException {
+        List<Task> tasks = new ArrayList<>(size());
+        for (int number : segmentNumbers) {
+            for (String line : readSegment(number)) {
+                tasks.add(Task.fromStorageString(line));
+            }
+        }
+        tasks.addAll(active.readAll());
+        return tasks;
+    }
+
+    /**
+     * Deletes every segment and the manifest.
+     */
+    void clear() throws IOException {
+        active.clear();
+        for (int number : segmentNumbers) {
+            Files.deleteIfExists(compressedSegment(number).toPath());
+        }
+        segmentNumbers.clear();
+        segmentCounts.clear();
+        Files.deleteIfExists(manifestFile.toPath());
+        manifestLength = 0;
+    }
+
+    private void seal() throws IOException {
+        int number = nextSegmentNumber();
+        File sealing = uncompressedSegment(number);
+        Storage.moveAtomically(new File(path), sealing);
+        Files.deleteIfExists(new File(path + ".idx").toPath());
+        finishSeal(number, sealing);
+        active = ArchiveStore.open(path);
+    }
+
+    private void finishSeal(int number, File sealing) throws IOException {
+        File temp = new File(compressedSegment(number).getPath() + ".tmp");
+        int count;
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(temp), BUFFER_SIZE)) {
+            count = ArchiveStore.copyLiveLines(sealing, out);
+        }
+        Storage.moveAtomically(temp, compressedSegment(number));
+
+        segmentNumbers.add(number);
+        segmentCounts.add(count);
+        writeManifest();
+        Files.delete(sealing.toPath());
+    }
+
+    private Task restoreFromSegment(int segment, int index) throws IOException, ShonksException {
+        int number = segmentNumbers.get(segment);
+        List<String> lines = readSegment(number);
+        if (lines.size() != segmentCounts.get(segment)) {
+            // A crash came between rewriting this segment and updating the manifest.
+            segmentCounts.set(segment, lines.size());
+            writeManifest();
+            throw new ShonksException("The archive index was out of date and has been repaired. Try again.");
+        }
+        Task task = Task.fromStorageString(lines.remove(index));
+
+        if (lines.isEmpty()) {
+            segmentNumbers.remove(segment);
+            segmentCounts.remove(segment);
+            writeManifest();
+            Files.delete(compressedSegment(number).toPath());
+            return task;
+        }
+
+        File temp = new File(compressedSegment(number).getPath() + ".tmp");
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(new FileOutputStream(temp), BUFFER_SIZE), StandardCharsets.UTF_8))) {
+            for (String line : lines) {
+                out.write(line);
+                out.write('\n');
+            }
+        }
+        // A crash before the manifest is written is caught by the count check above.
+        Storage.moveAtomically(temp, compressedSegment(number));
+        segmentCounts.set(segment, lines.size());
+        writeManifest();
+        return task;
+    }
+
+    private List<String> readSegment(int number) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new FileInputStream(compressedSegment(number)), BUFFER_SIZE),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.isBlank()) {
+                    lines.add(line);
+                }
+            }
+        }
+        return lines;
+    }
+
+    private void readManifest() throws IOException {
+        if (!manifestFile.exists()) {
+            return;
+        }
+        try {
+            for (String line : Files.readAllLines(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] parts = line.split(" \\| ");
+                segmentNumbers.add(Integer.parseInt(parts[0].trim()));
+                segmentCounts.add(Integer.parseInt(parts[1].trim()));
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupted archive manifest.", e);
+        }
+        manifestLength = manifestFile.length();
+    }
+
+    private void writeManifest() throws IOException {
+        File temp = new File(manifestFile.getPath() + ".tmp");
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new BufferedOutputStream(new FileOutputStream(temp)), StandardCharsets.UTF_8))) {
+            for (int i = 0; i < segmentNumbers.size(); i++) {
+                out.write(segmentNumbers.get(i) + SEPARATOR + segmentCounts.get(i) + "\n");
+            }
+        }
+        Storage.moveAtomically(temp, manifestFile);
+        manifestLength = manifestFile.length();
+    }
+
+    private int nextSegmentNumber() {
+        return segmentNumbers.isEmpty() ? 1 : segmentNumbers.get(segmentNumbers.size() - 1) + 1;
+    }
+
+    private File compressedSegment(int number) {
+        return new File(path + "." + number + ".gz");
+    }
+
+    private File uncompressedSegment(int number) {
+        return new File(path + "." + number + ".txt");
+    }
+}
@@ -0,0 +1,354 @@
+package shonks.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import shonks.ShonksException;
+import shonks.task.Deadline;
+import shonks.task.DescriptionPool;
+import shonks.task.Event;
+import shonks.task.Task;
+import shonks.task.Todo;
+
+/**
+ * Save file where every task lives in a fixed-size slot, so a single task can be changed with
+ * one positional write instead of rewriting the file.
+ * <p>
+ * Layout of the data file (big-endian):
+ * <pre>
+ * magic      4 bytes  0x89 'S' 'H' 'S'
+ * version    1 byte, then 3 bytes padding
+ * heap id    long     the descriptions live in &lt;path&gt;.heap.&lt;heap id&gt;
+ * slots      48 bytes each:
+ *   flags    1 byte   used in bit 6, done in bit 7, type in bits 0-1 (as in {@link BinaryCodec})
+ *   id       long     stable task id
+ *   desc     long offset + int length into the heap
+ *   time 1   long + int   deadline: epoch day; event: from (epoch second UTC, nano)
+ *   time 2   long + int   event: to
+ * </pre>
+ * Marking or unmarking rewrites the flags byte; deleting clears it, which frees the slot for
+ * the next add. Descriptions are only ever appended to the heap, so a full save (which writes
+ * a fresh heap under a new id) reclaims what deleted tasks left behind.
+ * <p>
+ * List order is the order of the stable ids, which is independent of slot reuse.
+ */
+class SlotFile {
+    static final byte[] MAGIC = {(byte) 0x89, 'S', 'H', 'S'};
+    static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 16;
+    private static final int HEAP_ID_OFFSET = 8;
+    private static final int SLOT_BYTES = 48;
+    private static final int USED_BIT = 0x40;
+    private static final int DONE_BIT = 0x80;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final File file;
+    private final long heapId;
+    private final RandomAccessFile slots;
+    private final RandomAccessFile heap;
+    private final Map<Long, Integer> slotById = new HashMap<>();
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int slotCount;
+    private long garbageBytes;
+
+    private SlotFile(File file, long heapId) throws IOException {
+        this.file = file;
+        this.heapId = heapId;
+        this.slots = new RandomAccessFile(file, "rw");
+        this.heap = new RandomAccessFile(heapFile(file, heapId), "rw");
+    }
+
+    /**
+     * Returns whether the given file starts with the slot format's magic bytes.
+     */
+    static boolean isSlotted(File file) throws IOException {
+        if (!file.exists() || file.length() < MAGIC.length) {
+            return false;
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            return Arrays.equals(in.readNBytes(MAGIC.length), MAGIC);
+        }
+    }
+
+    static File heapFile(File file, long heapId) {
+        return new File(file.getPath() + ".heap." + heapId);
+    }
+
+    /**
+     * Returns the heap id recorded in an existing slot file, or 0 if there is none.
+     */
+    static long readHeapId(File file) throws IOException {
+        if (!isSlotted(file)) {
+            return 0;
+        }
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            in.seek(HEAP_ID_OFFSET);
+            return in.readLong();
+        }
+    }
+
+    /**
+     * Writes the tasks into consecutive slots of {@code out} and their descriptions into a new
+     * heap next to {@code file}.
+     *
+     * @param out Stream for the slot file, usually a temp file later moved over {@code file}.
+     * @param file Path the slot file will end up at.
+     * @param heapId Id of the new heap; must differ from the heap the current file uses.
+     * @param isForced Whether to fsync the heap before returning.
+     */
+    static void write(OutputStream out, File file, List<Task> tasks, long heapId, boolean isForced)
+            throws IOException {
+        DataOutputStream slotOut = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        slotOut.write(MAGIC);
+        slotOut.writeByte(VERSION);
+        slotOut.write(new byte[HEAP_ID_OFFSET - MAGIC.length - 1]);
+        slotOut.writeLong(heapId);
+
+        try (FileOutputStream heapFileOut = new FileOutputStream(heapFile(file, heapId))) {
+            OutputStream heapOut = new BufferedOutputStream(heapFileOut, BUFFER_SIZE);
+            long heapOffset = 0;
+            for (Task task : tasks) {
+                assert task != null : "Task in list should not be null";
+                byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+                heapOut.write(description);
+                slotOut.write(encodeSlot(task, heapOffset, description.length));
+                heapOffset += description.length;
+            }
+            heapOut.flush();
+            if (isForced) {
+                heapFileOut.getChannel().force(true);
+            }
+        }
+        slotOut.flush();
+    }
+
+    /**
+     * Opens a slot file for in-place updates, creating an empty one if it does not exist.
+     */
+    static SlotFile open(File file) throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            try (OutputStream out = new FileOutputStream(file)) {
+                write(out, file, List.of(), 1, false);
+            }
+        }
+
+        SlotFile slotFile = new SlotFile(file, readHeapId(file));
+        slotFile.scan();
+        return slotFile;
+    }
+
+    private void scan() throws IOException {
+        slotCount = (int) ((slots.length() - HEADER_BYTES) / SLOT_BYTES);
+        long liveBytes = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file), BUFFER_SIZE))) {
+            in.skipNBytes(HEADER_BYTES);
+            byte[] slot = new byte[SLOT_BYTES];
+            for (int i = 0; i < slotCount; i++) {
+                in.readFully(slot);
+                ByteBuffer buffer = ByteBuffer.wrap(slot);
+                if ((buffer.get(0) & USED_BIT) == 0) {
+                    addFreeSlot(i);
+                } else {
+                    slotById.put(buffer.getLong(1), i);
+                    liveBytes += buffer.getInt(17);
+                }
+            }
+        }
+        garbageBytes = heap.length() - liveBytes;
+    }
+
+    /**
+     * Decodes every task, in id order.
+     */
+    List<Task> readAll() throws IOException, ShonksException {
+        byte[] descriptions = Files.readAllBytes(heapFile(file, heapId).toPath());
+        List<Task> tasks = new ArrayList<>(slotById.size());
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file), BUFFER_SIZE))) {
+            in.skipNBytes(HEADER_BYTES);
+            byte[] slot = new byte[SLOT_BYTES];
+            for (int i = 0; i < slotCount; i++) {
+                in.readFully(slot);
+                if ((slot[0] & USED_BIT) != 0) {
+                    tasks.add(decodeSlot(ByteBuffer.wrap(slot), descriptions, i));
+                }
+            }
+        } catch (EOFException e) {
+            throw new ShonksException("Corrupted save file: it ends in the middle of a slot.");
+        }
+        tasks.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+        return tasks;
+    }
+
+    synchronized void add(Task task) throws IOException {
+        assert !slotById.containsKey(task.getId()) : "Task id should not be stored twice";
+        byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+        long heapOffset = heap.length();
+        heap.seek(heapOffset);
+        heap.write(description);
+
+        int slot = freeCount > 0 ? freeSlots[--freeCount] : slotCount++;
+        slots.seek(slotOffset(slot));
+        slots.write(encodeSlot(task, heapOffset, description.length));
+        slotById.put(task.getId(), slot);
+    }
+
+    /**
+     * Rewrites the flags byte of the task's slot: one positional write.
+     */
+    synchronized void writeFlags(Task task) throws IOException {
+        slots.seek(slotOffset(requireSlot(task.getId())));
+        slots.writeByte(flagsOf(task));
+    }
+
+    synchronized void delete(Task task) throws IOException {
+        int slot = requireSlot(task.getId());
+        slots.seek(slotOffset(slot));
+        slots.writeByte(0);
+        slotById.remove(task.getId());
+        addFreeSlot(slot);
+        garbageBytes += task.getDescription().getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    synchronized void clear() throws IOException {
+        slots.setLength(HEADER_BYTES);
+        heap.setLength(0);
+        slotById.clear();
+        freeCount = 0;
+        slotCount = 0;
+        garbageBytes = 0;
+    }
+
+    /**
+     * Returns how many heap bytes belong to deleted tasks.
+     */
+    long garbageBytes() {
+        return garbageBytes;
+    }
+
+    long heapId() {
+        return heapId;
+    }
+
+    synchronized void force() throws IOException {
+        heap.getChannel().force(false);
+        slots.getChannel().force(false);
+    }
+
+    synchronized void close() {
+        try {
+            slots.close();
+            heap.close();
+        } catch (IOException e) {
+            // Nothing sensible to do; every write already went through.
+        }
+    }
+
+    private int requireSlot(long id) throws IOException {
+        Integer slot = slotById.get(id);
+        if (slot == null) {
+            throw new IOException("Task " + id + " has no slot.");
+        }
+        return slot;
+    }
+
+    private void addFreeSlot(int slot) {
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private static long slotOffset(int slot) {
+        return HEADER_BYTES + (long) slot * SLOT_BYTES;
+    }
+
+    private static int flagsOf(Task task) {
+        int type = task instanceof Deadline ? BinaryCodec.TYPE_DEADLINE
+                : task instanceof Event ? BinaryCodec.TYPE_EVENT : BinaryCodec.TYPE_TODO;
+        return USED_BIT | type | (task.isDone() ? DONE_BIT : 0);
+    }
+
+    private static byte[] encodeSlot(Task task, long heapOffset, int heapLength) {
+        ByteBuffer slot = ByteBuffer.allocate(SLOT_BYTES);
+        slot.put((byte) flagsOf(task));
+        slot.putLong(task.getId());
+        slot.putLong(heapOffset);
+        slot.putInt(heapLength);
+        if (task instanceof Deadline) {
+            slot.putLong(((Deadline) task).getBy().toEpochDay());
+        } else if (task instanceof Event) {
+            putDateTime(slot, ((Event) task).getFrom());
+            putDateTime(slot, ((Event) task).getTo());
+        }
+        return slot.array();
+    }
+
+    private static void putDateTime(ByteBuffer slot, LocalDateTime dateTime) {
+        slot.putLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+        slot.putInt(dateTime.getNano());
+    }
+
+    private static Task decodeSlot(ByteBuffer slot, byte[] descriptions, int slotNumber) throws ShonksException {
+        int flags = slot.get();
+        long id = slot.getLong();
+        long heapOffset = slot.getLong();
+        int heapLength = slot.getInt();
+        if (heapOffset < 0 || heapLength < 0 || heapOffset + heapLength > descriptions.length) {
+            throw new ShonksException("Corrupted save file slot " + (slotNumber + 1) + ".");
+        }
+        String description = DescriptionPool.intern(
+                new String(descriptions, (int) heapOffset, heapLength, StandardCharsets.UTF_8));
+
+        Task task;
+        switch (flags & BinaryCodec.TYPE_MASK) {
+        case BinaryCodec.TYPE_TODO:
+            task = new Todo(description);
+            break;
+        case BinaryCodec.TYPE_DEADLINE:
+            task = new Deadline(description, LocalDate.ofEpochDay(slot.getLong()));
+            break;
+        case BinaryCodec.TYPE_EVENT:
+            task = new Event(description, getDateTime(slot), getDateTime(slot));
+            break;
+        default:
+            throw new ShonksException("Unknown task type in save file slot " + (slotNumber + 1) + ".");
+        }
+
+        if ((flags & DONE_BIT) != 0) {
+            task.markDone();
+        }
+        task.assignId(id);
+        return task;
+    }
+
+    private static LocalDateTime getDateTime(ByteBuffer slot) {
+        long epochSecond = slot.getLong();
+        int nano = slot.getInt();
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,322 @@
+package shonks.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+import shonks.task.Deadline;
+import shonks.task.DescriptionPool;
+import shonks.task.Event;
+import shonks.task.Task;
+import shonks.task.Todo;
+
+/**
+ * Pre-decoded copy of a text save file, kept next to it as {@code <data file>.image} so
+ * startup does not have to parse the text again.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ * magic        4 bytes  0x89 'S' 'H' 'I'
+ * version      int
+ * source       long size, long last-modified millis, long CRC32C of the data file
+ * headers      int count, then count x (string key, string value)
+ * count        int number of tasks
+ * flags        count bytes, as in {@link BinaryCodec}
+ * descriptions (count + 1) int end offsets, then int length + UTF-8 bytes of all of them
+ * deadlines    int count, then that many long epoch days
+ * events       int count, then that many long from seconds, int from nanos,
+ *              long to seconds and int to nanos (four columns; UTC)
+ * checksum     long CRC32C of everything above
+ * </pre>
+ * Each column is one bulk read out of the mapped file, so loading is a few array copies and
+ * one object allocation per task. The image is only used while the data file's size,
+ * modification time and checksum still match; anything else (another program edited the
+ * file, a torn write, an older version) makes {@link #read} return null and the caller
+ * parses the text instead.
+ */
+class StartupImage {
+    static final String SUFFIX = ".image";
+
+    private static final byte[] MAGIC = {(byte) 0x89, 'S', 'H', 'I'};
+    private static final int VERSION = 1;
+    private static final int DONE_BIT = 0x80;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    static File fileFor(File dataFile) {
+        return new File(dataFile.getPath() + SUFFIX);
+    }
+
+    /**
+     * Writes an image of the given tasks, which must be exactly what {@code dataFile} now
+     * holds, and atomically moves it into place.
+     */
+    static void write(File dataFile, List<Task> tasks, Map<String, String> headers) throws IOException {
+        long size = dataFile.length();
+        long modified = dataFile.lastModified();
+        long checksum = checksum(dataFile);
+
+        int count = tasks.size();
+        byte[] flags = new byte[count];
+        int[] ends = new int[count + 1];
+        byte[][] descriptions = new byte[count][];
+        long[] deadlines = new long[count];
+        int deadlineCount = 0;
+        List<Event> events = new ArrayList<>();
+        int end = 0;
+        for (int i = 0; i < count; i++) {
+            Task task = tasks.get(i);
+            int type = BinaryCodec.TYPE_TODO;
+            if (task instanceof Deadline) {
+                type = BinaryCodec.TYPE_DEADLINE;
+                deadlines[deadlineCount++] = ((Deadline) task).getBy().toEpochDay();
+            } else if (task instanceof Event) {
+                type = BinaryCodec.TYPE_EVENT;
+                events.add((Event) task);
+            }
+            flags[i] = (byte) (type | (task.isDone() ? DONE_BIT : 0));
+            descriptions[i] = task.getDescription().getBytes(StandardCharsets.UTF_8);
+            end += descriptions[i].length;
+            ends[i + 1] = end;
+        }
+
+        File temp = new File(fileFor(dataFile).getPath() + TEMP_SUFFIX);
+        CRC32C crc = new CRC32C();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new ChecksummedOutput(new FileOutputStream(temp), crc), BUFFER_SIZE))) {
+            out.write(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(size);
+            out.writeLong(modified);
+            out.writeLong(checksum);
+            out.writeInt(headers.size());
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                writeString(out, header.getKey());
+                writeString(out, header.getValue());
+            }
+
+            out.writeInt(count);
+            out.write(flags);
+            for (int value : ends) {
+                out.writeInt(value);
+            }
+            out.writeInt(end);
+            for (byte[] description : descriptions) {
+                out.write(description);
+            }
+
+            out.writeInt(deadlineCount);
+            for (int i = 0; i < deadlineCount; i++) {
+                out.writeLong(deadlines[i]);
+            }
+            out.writeInt(events.size());
+            for (Event event : events) {
+                out.writeLong(event.getFrom().toEpochSecond(ZoneOffset.UTC));
+            }
+            for (Event event : events) {
+                out.writeInt(event.getFrom().getNano());
+            }
+            for (Event event : events) {
+                out.writeLong(event.getTo().toEpochSecond(ZoneOffset.UTC));
+            }
+            for (Event event : events) {
+                out.writeInt(event.getTo().getNano());
+            }
+            out.flush();
+            out.writeLong(crc.getValue());
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+        try {
+            Files.move(temp.toPath(), fileFor(dataFile).toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), fileFor(dataFile).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads the image of {@code dataFile} if it is still valid.
+     *
+     * @param headers Map that receives the data file's headers, only if the image is used.
+     * @return The tasks, or null if there is no usable image.
+     */
+    static ArrayList<Task> read(File dataFile, Map<String, String> headers) throws IOException {
+        File image = fileFor(dataFile);
+        if (!image.exists() || image.length() > Integer.MAX_VALUE || !dataFile.exists()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(image.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (!hasValidSource(in, dataFile) || !hasValidChecksum(in)) {
+                return null;
+            }
+            return readTasks(in, headers);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            return null;    // Unreachable once the checksum matched, unless the writer was buggy.
+        }
+    }
+
+    private static boolean hasValidSource(ByteBuffer in, File dataFile) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        in.get(magic);
+        if (!Arrays.equals(magic, MAGIC) || in.getInt() != VERSION) {
+            return false;
+        }
+        // Size and time are free to check; the checksum catches edits that keep both.
+        return in.getLong() == dataFile.length()
+                && in.getLong() == dataFile.lastModified()
+                && in.getLong() == checksum(dataFile);
+    }
+
+    private static boolean hasValidChecksum(ByteBuffer in) {
+        int payloadEnd = in.limit() - Long.BYTES;
+        if (payloadEnd < 0) {
+            return false;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(in.duplicate().position(0).limit(payloadEnd));
+        return crc.getValue() == in.getLong(payloadEnd);
+    }
+
+    private static ArrayList<Task> readTasks(ByteBuffer in, Map<String, String> headers) {
+        Map<String, String> imageHeaders = new LinkedHashMap<>();
+        int headerCount = in.getInt();
+        for (int i = 0; i < headerCount; i++) {
+            imageHeaders.put(readString(in), readString(in));
+        }
+
+        int count = in.getInt();
+        byte[] flags = new byte[count];
+        in.get(flags);
+        int[] ends = new int[count + 1];
+        in.asIntBuffer().get(ends);
+        in.position(in.position() + ends.length * Integer.BYTES);
+        byte[] text = new byte[in.getInt()];
+        in.get(text);
+
+        long[] deadlines = new long[in.getInt()];
+        in.asLongBuffer().get(deadlines);
+        in.position(in.position() + deadlines.length * Long.BYTES);
+        int eventCount = in.getInt();
+        long[] fromSeconds = readLongs(in, eventCount);
+        int[] fromNanos = readInts(in, eventCount);
+        long[] toSeconds = readLongs(in, eventCount);
+        int[] toNanos = readInts(in, eventCount);
+
+        ArrayList<Task> tasks = new ArrayList<>(count);
+        int deadline = 0;
+        int event = 0;
+        for (int i = 0; i < count; i++) {
+            String desc = DescriptionPool.intern(
+                    new String(text, ends[i], ends[i + 1] - ends[i], StandardCharsets.UTF_8));
+            Task task;
+            switch (flags[i] & BinaryCodec.TYPE_MASK) {
+            case BinaryCodec.TYPE_DEADLINE:
+                task = new Deadline(desc, LocalDate.ofEpochDay(deadlines[deadline++]));
+                break;
+            case BinaryCodec.TYPE_EVENT:
+                task = new Event(desc,
+                        LocalDateTime.ofEpochSecond(fromSeconds[event], fromNanos[event], ZoneOffset.UTC),
+                        LocalDateTime.ofEpochSecond(toSeconds[event], toNanos[event], ZoneOffset.UTC));
+                event++;
+                break;
+            default:
+                task = new Todo(desc);
+                break;
+            }
+            if ((flags[i] & DONE_BIT) != 0) {
+                task.markDone();
+            }
+            tasks.add(task);
+        }
+        headers.putAll(imageHeaders);
+        return tasks;
+    }
+
+    private static long[] readLongs(ByteBuffer in, int count) {
+        long[] values = new long[count];
+        in.asLongBuffer().get(values);
+        in.position(in.position() + count * Long.BYTES);
+        return values;
+    }
+
+    private static int[] readInts(ByteBuffer in, int count) {
+        int[] values = new int[count];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + count * Integer.BYTES);
+        return values;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the CRC32C of a whole file, read through a mapping.
+     */
+    static long checksum(File file) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += Integer.MAX_VALUE) {
+                long length = Math.min(Integer.MAX_VALUE, size - position);
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Stream that feeds every byte written through it into a checksum.
+     */
+    private static class ChecksummedOutput extends FilterOutputStream {
+        private final CRC32C crc;
+
+        ChecksummedOutput(FileOutputStream out, CRC32C crc) {
+            super(out);
+            this.crc = crc;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            crc.update(b);
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            crc.update(b, off, len);
+            out.write(b, off, len);
+        }
+    }
+}
@@ -1,16 +1,27 @@
 package shonks.storage;
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import shonks.ShonksException;
 import shonks.task.Task;
+import shonks.task.TaskList;
 
-public class Storage {
+public class Storage implements StorageBackend {
     /**
      * Handles loading, saving, and archiving of tasks in Shonks.
      * <p>
@@ -18,152 +29,817 @@ public class Storage {
      * task list to disk and appending archived tasks to a separate archive file.
      * Tasks are stored in a single-line text format defined by
      * {@link shonks.task.Task#toStorageString()}.
+     * <p>
+     * In journal mode, {@link #save(List)} writes a full snapshot and every other
+     * mutation only appends one small record to {@code <filePath>.journal}; {@link #load()}
+     * replays the journal on top of the snapshot. A journal left behind by an earlier
+     * journaled session is still replayed (and then folded into the next full save) when
+     * journal mode is off.
+     * <p>
+     * Once the journal grows past a size or record-count threshold, it is compacted in the
+     * background: a new snapshot is written to a temp file and atomically moved over the data
+     * file, and the journal it absorbed is deleted. See {@link #getLastCompaction()}.
+     * <p>
+     * Full saves are written the same way, so a crash mid-save leaves the previous data file
+     * intact. How much is fsynced on the way is set by {@link #setDurability(Durability)}.
+     * <p>
+     * The data file is either text or binary (see {@link StorageFormat}). The format is
+     * detected on load and kept for later saves unless another one is set explicitly.
+     * <p>
+     * A text data file gets a pre-decoded {@link StartupImage} next to it, rewritten with every
+     * full save. {@link #load()} reads the image instead of parsing the text while it still
+     * matches the data file, e.g. after restarts with no changes or with only journaled ones.
      */
+    private static final String HEADER_PREFIX = "#";
+    private static final String IDS_HEADER = "ids";
+    private static final String GENERATION_HEADER = "gen";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final boolean IS_WINDOWS = System.getProperty("os.name", "").startsWith("Windows");
+    private static final long DEFAULT_MAX_JOURNAL_BYTES = 1024 * 1024;
+    private static final int DEFAULT_MAX_JOURNAL_RECORDS = 10_000;
+    private static final long MAX_LAZY_FILE_SIZE = Integer.MAX_VALUE - 8;   // largest byte[] the VM allows
+
     private final String filePath;
+    private final Journal journal;
+    private final boolean isJournaled;
+    private final Compactor compactor = new Compactor();
+    private final ArchiveFile archive;
+    private StorageFormat format;
+    private Durability durability = Durability.FILE;
+    private long generation;
+    private long maxJournalBytes = DEFAULT_MAX_JOURNAL_BYTES;
+    private int maxJournalRecords = DEFAULT_MAX_JOURNAL_RECORDS;
+    private WriteBehind writeBehind;
+    private SlotFile slots;                     // guarded by this; the writer thread forces it
 
     public Storage(String filePath) {
+        this(filePath, false);
+    }
+
+    /**
+     * Creates a storage backed by the given data file.
+     *
+     * @param filePath Path to the data file.
+     * @param isJournaled Whether mutations are appended to a journal instead of rewriting the file.
+     */
+    public Storage(String filePath, boolean isJournaled) {
+        this(filePath, isJournaled, ArchiveFile.defaultPath(filePath));
+    }
+
+    /**
+     * Creates a storage backed by the given data and archive files.
+     *
+     * @param filePath Path to the data file.
+     * @param isJournaled Whether mutations are appended to a journal instead of rewriting the file.
+     * @param archivePath Path to the archive file.
+     */
+    public Storage(String filePath, boolean isJournaled, String archivePath) {
         assert filePath != null && !filePath.isEmpty() : "File path should be non-empty";
         this.filePath = filePath;
+        this.journal = new Journal(filePath + ".journal");
+        this.isJournaled = isJournaled;
+        this.archive = new ArchiveFile(archivePath);
+    }
+
+    public boolean isJournaled() {
+        return isJournaled;
+    }
+
+    /**
+     * Returns whether single mutations are persisted on their own through the log methods
+     * ({@link #logAdd(Task)} etc.) rather than by saving the whole list: in journal mode, and
+     * with the {@link StorageFormat#SLOTTED} format, which takes precedence over the journal.
+     *
+     * @return Whether to use the log methods.
+     */
+    @Override
+    public boolean isIncremental() {
+        return isJournaled || isSlotted();
+    }
+
+    private boolean isSlotted() {
+        return getFormat() == StorageFormat.SLOTTED;
+    }
+
+    /**
+     * Returns the format used for the next save.
+     *
+     * @return The save format.
+     */
+    public StorageFormat getFormat() {
+        return format == null ? StorageFormat.TEXT : format;
+    }
+
+    /**
+     * Sets the format used for all later saves, regardless of the format detected on load.
+     *
+     * @param format The save format.
+     */
+    public void setFormat(StorageFormat format) {
+        assert format != null : "Format should not be null";
+        this.format = format;
+    }
+
+    /**
+     * Rewrites the data file in the given format.
+     * Any pending journal records are folded into the converted snapshot.
+     *
+     * @param target The format to convert to.
+     * @throws ShonksException If the data file cannot be read or written.
+     */
+    public void convertTo(StorageFormat target) throws ShonksException {
+        TaskList tasks = load();
+        setFormat(target);
+        save(tasks.asList());
+    }
+
+    /**
+     * Sets when the journal is compacted into a new snapshot.
+     * Compaction starts as soon as either threshold is reached.
+     *
+     * @param maxBytes Journal size in bytes that triggers compaction.
+     * @param maxRecords Number of journal records that triggers compaction.
+     */
+    public void setCompactionThresholds(long maxBytes, int maxRecords) {
+        assert maxBytes > 0 && maxRecords > 0 : "Compaction thresholds should be positive";
+        this.maxJournalBytes = maxBytes;
+        this.maxJournalRecords = maxRecords;
+    }
+
+    /**
+     * Sets the size at which the active archive segment is compressed and sealed.
+     *
+     * @param segmentBytes Segment size limit in bytes of uncompressed text.
+     */
+    public void setArchiveSegmentBytes(long segmentBytes) {
+        archive.setSegmentBytes(segmentBytes);
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * Sets how hard saves and compactions try to reach stable storage before they return.
+     *
+     * @param durability The durability policy.
+     */
+    public void setDurability(Durability durability) {
+        assert durability != null : "Durability should not be null";
+        this.durability = durability;
+    }
+
+    /**
+     * Moves writes of the given task list to a background writer thread.
+     * <p>
+     * From now on {@link #requestSave} and the journal's log methods only mark the list dirty;
+     * mutations within {@code flushDelayMillis} of each other are written together. Commands
+     * must hold the task list's monitor while they run, and should call {@link #sync()} before
+     * the application exits.
+     *
+     * @param tasks The task list that is persisted.
+     * @param flushDelayMillis Longest time a mutation waits before it is written.
+     */
+    @Override
+    public void enableWriteBehind(TaskList tasks, long flushDelayMillis) {
+        assert writeBehind == null : "Write-behind should only be enabled once";
+        journal.setGroupCommit(true);
+        writeBehind = new WriteBehind(this, tasks, flushDelayMillis);
+    }
+
+    /**
+     * Saves the task list, or only marks it dirty when write-behind is enabled.
+     * Does nothing if the list has not changed since it was last persisted.
+     *
+     * @param tasks The task list to save.
+     * @throws ShonksException If saving synchronously fails.
+     */
+    @Override
+    public void requestSave(TaskList tasks) throws ShonksException {
+        if (!tasks.isDirty()) {
+            return;
+        }
+        if (writeBehind == null) {
+            long modCount = tasks.getModCount();
+            save(tasks.asList());
+            tasks.markPersisted(modCount);
+        } else {
+            writeBehind.markDirty();
+        }
+    }
+
+    /**
+     * Blocks until every change requested so far has been written.
+     *
+     * @throws ShonksException If writing fails.
+     */
+    @Override
+    public void sync() throws ShonksException {
+        if (writeBehind != null) {
+            writeBehind.sync();
+        }
+    }
+
+    /**
+     * Returns why the last background write failed, once, or null if it did not fail.
+     *
+     * @return The error message, or null.
+     */
+    @Override
+    public String takeSaveFailure() {
+        return writeBehind == null ? null : writeBehind.takeFailure();
+    }
+
+    int flushCount() {
+        return writeBehind == null ? 0 : writeBehind.flushCount();
+    }
+
+    void flushIncremental() throws ShonksException {
+        if (isSlotted()) {
+            forceSlots();
+        } else {
+            journal.flush();
+        }
     }
 
-    public ArrayList<Task> load() throws ShonksException {
+    /**
+     * Returns the outcome of the most recent background compaction.
+     *
+     * @return The report, or null if no compaction has finished yet.
+     */
+    @Override
+    public CompactionReport getLastCompaction() {
+        return compactor.lastReport();
+    }
+
+    @Override
+    public TaskList load() throws ShonksException {
         assert filePath != null && !filePath.isEmpty() : "File path should be non-empty";
-        ArrayList<Task> tasks = new ArrayList<>();
+        Map<String, String> headers = new HashMap<>();
+        ArrayList<Task> loaded = readSnapshot(new File(filePath), headers);
+        setGeneration(headers);
 
-        File file = new File(filePath);
-        if (!file.exists()) {
-            return tasks;
+        if (!isJournaled && !journal.exists()) {
+            return new TaskList(loaded);
         }
 
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                if (line.trim().isEmpty()) {
-                    continue;
-                }
-                tasks.add(Task.fromStorageString(line));
+        if (!isSlotted()) {
+            assignIds(loaded, headers.get(IDS_HEADER));
+        }
+        return recoverJournal(new TaskList(loaded));
+    }
+
+    /**
+     * Loads the task list without decoding it: tasks stay as raw lines of the text save file
+     * and are decoded on first access, so startup time barely depends on the list size.
+     * Binary save files are loaded eagerly, as decoding them is already cheap, and so are text
+     * files too large for one byte array, which the mapped loader reads in windows.
+     *
+     * @param cacheSize Maximum number of decoded tasks kept in memory.
+     * @return The lazily decoded task list.
+     * @throws ShonksException If the data file cannot be read.
+     */
+    @Override
+    public TaskList loadLazily(int cacheSize) throws ShonksException {
+        File file = new File(filePath);
+        byte[] data;
+        try {
+            if (!file.exists() || file.length() > MAX_LAZY_FILE_SIZE
+                    || BinaryCodec.isBinary(file) || SlotFile.isSlotted(file)) {
+                return load();
             }
+            data = Files.readAllBytes(file.toPath());
         } catch (IOException e) {
             throw new ShonksException("Error loading saved data.");
         }
+        if (format == null) {
+            format = StorageFormat.TEXT;
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        RawLines lines = RawLines.index(data, headers);
+        setGeneration(headers);
+        long[] ids = parseIdRanges(headers.get(IDS_HEADER), lines.count);
+        TaskList tasks = TaskList.ofRawLines(data, lines.starts, lines.lengths, ids, lines.count, cacheSize);
 
+        if (!isJournaled && !journal.exists()) {
+            return tasks;
+        }
+        return recoverJournal(tasks);
+    }
+
+    private void setGeneration(Map<String, String> headers) throws ShonksException {
+        generation = parseGeneration(headers.get(GENERATION_HEADER));
+        journal.setGeneration(generation);
+    }
+
+    private TaskList recoverJournal(TaskList tasks) throws ShonksException {
+        journal.recover(tasks, generation);
+        if ((isJournaled && journal.hasPrev()) || isSlotted()) {
+            // A compaction was interrupted, or the journal is left over from before the switch
+            // to slots; fold it in now rather than replaying it again next time.
+            save(tasks.asList());
+        }
         return tasks;
     }
 
-    public void save(ArrayList<Task> tasks) throws ShonksException {
+    @Override
+    public synchronized void save(List<Task> tasks) throws ShonksException {
         assert tasks != null : "Tasks to save should not be null";
         assert filePath != null && !filePath.isEmpty() : "File path should be non-empty";
 
+        compactor.await();
         File file = new File(filePath);
-        File parent = file.getParentFile();
+        createParentFolder(file, "Could not create data folder.");
+
+        long nextGeneration = generation + 1;
+        try {
+            replaceSnapshot(tasks, nextGeneration);
+        } catch (IOException e) {
+            throw new ShonksException("Error saving data.");
+        }
+
+        journal.truncate();
+        generation = nextGeneration;
+        journal.setGeneration(generation);
+    }
+
+    /**
+     * Starts a background compaction if the journal has grown past its thresholds.
+     * <p>
+     * Only a {@link TaskList#snapshot()} is taken on the calling thread, and the journal is
+     * rotated right after it. Records appended while the snapshot is being written go to the
+     * fresh journal, which therefore holds exactly the changes the new snapshot is missing;
+     * replaying mark, unmark or delete records twice would fail on tasks that are gone.
+     *
+     * @param tasks The current task list.
+     * @throws ShonksException If the journal cannot be rotated.
+     */
+    @Override
+    public void compactIfNeeded(TaskList tasks) throws ShonksException {
+        if (isSlotted()) {
+            compactSlotsIfNeeded(tasks);
+            return;
+        }
+        if (!isJournaled || compactor.isRunning() || journal.hasPrev()) {
+            return;
+        }
+        if (journal.byteCount() < maxJournalBytes && journal.recordCount() < maxJournalRecords) {
+            return;
+        }
+
+        List<Task> captured = tasks.snapshot();
+        long nextGeneration = generation + 1;
+        journal.rotate(nextGeneration);
+        generation = nextGeneration;
+        compactor.submit(() -> compact(captured, nextGeneration));
+    }
+
+    /**
+     * Rewrites a slot file once deleted tasks left as many heap bytes behind as the journal
+     * may grow to before it is compacted.
+     */
+    private synchronized void compactSlotsIfNeeded(TaskList tasks) throws ShonksException {
+        if (slots == null || slots.garbageBytes() < maxJournalBytes) {
+            return;
+        }
+        long modCount = tasks.getModCount();
+        save(tasks.asList());
+        tasks.markPersisted(modCount);
+    }
+
+    private CompactionReport compact(List<Task> captured, long snapshotGeneration) {
+        long start = System.nanoTime();
+        File file = new File(filePath);
+        long bytesBefore = file.length() + journal.prevByteCount();
+
+        try {
+            replaceSnapshot(captured, snapshotGeneration);
+            journal.deletePrev();
+        } catch (IOException | ShonksException e) {
+            return new CompactionReport(elapsedMillis(start), 0, captured.size(), e.getMessage());
+        }
+
+        return new CompactionReport(elapsedMillis(start), bytesBefore - file.length(), captured.size(), null);
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /**
+     * Writes out pending changes, waits for any background compaction to finish and
+     * releases the journal.
+     */
+    @Override
+    public void close() {
+        if (writeBehind != null) {
+            try {
+                writeBehind.sync();
+            } catch (ShonksException e) {
+                // Shutting down; the data file keeps the last successful write.
+            }
+            writeBehind.shutdown();
+        }
+        compactor.await();
+        journal.close();
+        closeSlots();
+    }
+
+    private ArrayList<Task> readSnapshot(File file, Map<String, String> headers) throws ShonksException {
+        try {
+            StorageFormat detected = BinaryCodec.isBinary(file) ? StorageFormat.BINARY
+                    : SlotFile.isSlotted(file) ? StorageFormat.SLOTTED
+                    : StorageFormat.TEXT;
+            if (format == null) {
+                format = detected;
+            }
+
+            switch (detected) {
+            case BINARY:
+                return BinaryCodec.read(file, new ArrayList<>(), headers);
+            case SLOTTED:
+                return new ArrayList<>(openSlots(file).readAll());
+            default:
+                return readText(file, headers);
+            }
+        } catch (IOException e) {
+            throw new ShonksException("Error loading saved data.");
+        }
+    }
+
+    /**
+     * Reads a text snapshot from its startup image if that is still valid, or else parses the
+     * text and writes a fresh image for the next start.
+     */
+    private static ArrayList<Task> readText(File file, Map<String, String> headers) throws ShonksException {
+        try {
+            ArrayList<Task> imaged = StartupImage.read(file, headers);
+            if (imaged != null) {
+                return imaged;
+            }
+        } catch (IOException e) {
+            // Fall through: the text is the source of truth.
+        }
+        ArrayList<Task> parsed = loadFromFile(file, new ArrayList<>(), headers, "Error loading saved data.");
+        if (file.exists()) {
+            writeImage(file, parsed, headers);
+        }
+        return parsed;
+    }
+
+    private static void writeImage(File file, List<Task> tasks, Map<String, String> headers) {
+        try {
+            StartupImage.write(file, tasks, headers);
+        } catch (IOException e) {
+            // Only startup speed depends on the image; a stale one is never used.
+            StartupImage.fileFor(file).delete();
+        }
+    }
+
+    /**
+     * Writes a snapshot to a temp file and atomically moves it over the data file, syncing
+     * as much as the {@link Durability} policy asks for.
+     */
+    private void replaceSnapshot(List<Task> tasks, long snapshotGeneration) throws IOException {
+        File file = new File(filePath);
+        File temp = new File(filePath + TEMP_SUFFIX);
+        long oldHeapId = SlotFile.readHeapId(file);
+        closeSlots(); // reopened on the next in-place update
+        Map<String, String> headers = snapshotHeaders(tasks, snapshotGeneration);
+        try {
+            writeSnapshot(temp, tasks, headers);
+            moveAtomically(temp, file);
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+        if (durability == Durability.FILE_AND_DIRECTORY) {
+            syncDirectory(file.getAbsoluteFile().getParentFile());
+        }
+        if (getFormat() == StorageFormat.TEXT) {
+            writeImage(file, tasks, headers);
+        } else {
+            Files.deleteIfExists(StartupImage.fileFor(file).toPath());
+        }
+        if (oldHeapId != 0) {
+            Files.deleteIfExists(SlotFile.heapFile(file, oldHeapId).toPath());
+        }
+    }
+
+    /**
+     * Moves a file over another one, atomically where the file system supports it.
+     */
+    static void moveAtomically(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void syncDirectory(File directory) throws IOException {
+        if (IS_WINDOWS) {
+            return; // A directory cannot be opened as a channel there.
+        }
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private Map<String, String> snapshotHeaders(List<Task> tasks, long snapshotGeneration) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        if (isJournaled) {
+            // Journal records refer to stable ids, so the snapshot must remember them.
+            headers.put(GENERATION_HEADER, String.valueOf(snapshotGeneration));
+            headers.put(IDS_HEADER, formatIdRanges(tasks));
+        }
+        return headers;
+    }
 
-        if (parent != null && !parent.exists()) {
-            if (!parent.mkdirs()) {
-                throw new ShonksException("Could not create data folder.");
+    private void writeSnapshot(File target, List<Task> tasks, Map<String, String> headers) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(target)) {
+            if (getFormat() == StorageFormat.BINARY) {
+                BinaryCodec.write(out, tasks, headers);
+            } else if (isSlotted()) {
+                // Slots carry the stable ids themselves, so no headers are needed.
+                File file = new File(filePath);
+                SlotFile.write(out, file, tasks, SlotFile.readHeapId(file) + 1, durability != Durability.NONE);
+            } else {
+                writeText(out, tasks, headers);
+            }
+            if (durability != Durability.NONE) {
+                out.getChannel().force(true);
             }
         }
+    }
+
+    private static void writeText(OutputStream out, List<Task> tasks, Map<String, String> headers)
+            throws IOException {
+        BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            bw.write(HEADER_PREFIX + " " + header.getKey() + " | " + header.getValue());
+            bw.newLine();
+        }
+        for (Task task : tasks) {
+            assert task != null : "Task in list should not be null";
+            bw.write(task.toStorageString());
+            bw.newLine();
+        }
+        bw.flush();
+    }
+
+    private static long parseGeneration(String value) throws ShonksException {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new ShonksException("Corrupted save file header: " + value);
+        }
+    }
+
+    private static void createParentFolder(File file, String mkdirErrorMessage) throws ShonksException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new ShonksException(mkdirErrorMessage);
+        }
+    }
+
+    /**
+     * Records that a task was added to the end of the list.
+     * Only valid in journal mode.
+     *
+     * @param task The added task.
+     * @throws ShonksException If the record cannot be written.
+     */
+    @Override
+    public void logAdd(Task task) throws ShonksException {
+        if (isSlotted()) {
+            updateSlots(slotFile -> slotFile.add(task));
+        } else {
+            requireJournal().appendAdd(task);
+        }
+        afterLogged();
+    }
+
+    @Override
+    public void logMark(Task task) throws ShonksException {
+        if (isSlotted()) {
+            updateSlots(slotFile -> slotFile.writeFlags(task));
+        } else {
+            requireJournal().appendMark(task);
+        }
+        afterLogged();
+    }
+
+    @Override
+    public void logUnmark(Task task) throws ShonksException {
+        if (isSlotted()) {
+            updateSlots(slotFile -> slotFile.writeFlags(task));
+        } else {
+            requireJournal().appendUnmark(task);
+        }
+        afterLogged();
+    }
+
+    @Override
+    public void logDelete(Task task) throws ShonksException {
+        if (isSlotted()) {
+            updateSlots(slotFile -> slotFile.delete(task));
+        } else {
+            requireJournal().appendDelete(task);
+        }
+        afterLogged();
+    }
+
+    @Override
+    public void logClear() throws ShonksException {
+        if (isSlotted()) {
+            updateSlots(SlotFile::clear);
+        } else {
+            requireJournal().appendClear();
+        }
+        afterLogged();
+    }
 
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
-            for (Task task : tasks) {
-                assert task != null : "Task in list should not be null";
-                bw.write(task.toStorageString());
-                bw.newLine();
+    /**
+     * One in-place update of the slot file.
+     */
+    private interface SlotUpdate {
+        void apply(SlotFile slotFile) throws IOException;
+    }
+
+    private synchronized void updateSlots(SlotUpdate update) throws ShonksException {
+        try {
+            if (slots == null) {
+                File file = new File(filePath);
+                createParentFolder(file, "Could not create data folder.");
+                slots = SlotFile.open(file);
             }
+            update.apply(slots);
         } catch (IOException e) {
             throw new ShonksException("Error saving data.");
         }
     }
 
+    private void afterLogged() throws ShonksException {
+        if (writeBehind != null) {
+            writeBehind.markDirty();
+        } else if (isSlotted()) {
+            forceSlots();
+        }
+    }
+
+    private synchronized void forceSlots() throws ShonksException {
+        if (slots == null || durability == Durability.NONE) {
+            return;
+        }
+        try {
+            slots.force();
+        } catch (IOException e) {
+            throw new ShonksException("Error saving data.");
+        }
+    }
+
+    private synchronized SlotFile openSlots(File file) throws IOException {
+        closeSlots();
+        slots = SlotFile.open(file);
+        return slots;
+    }
+
+    private synchronized void closeSlots() {
+        if (slots != null) {
+            slots.close();
+            slots = null;
+        }
+    }
+
+    private Journal requireJournal() {
+        assert isJournaled : "Storage is not in journal mode";
+        return journal;
+    }
+
     /**
-     * Appends the given tasks to an archive file.
+     * Appends the given tasks to the archive file.
      * <p>
      * This does not modify the in-memory task list. Callers should clear the current list
      * separately if they want a "clean slate" effect after archiving.
      * <p>
-     * Each archived task is written using {@link shonks.task.Task#toStorageString()}.
+     * Each archived task is written using {@link shonks.task.Task#toStorageString()} to the
+     * active archive segment, which is compressed and sealed once it reaches the segment size
+     * (see {@link SegmentedArchive}).
      *
-     * @param archivePath Path to the archive file to append to.
      * @param tasks Tasks to archive.
      * @throws shonks.ShonksException If archiving fails due to I/O errors or invalid paths.
      */
-    public void archiveTo(String archivePath, ArrayList<Task> tasks) throws ShonksException {
-        assert archivePath != null && !archivePath.isEmpty() : "Archive path should be non-empty";
-        assert tasks != null : "Tasks to archive should not be null";
-
-        File file = new File(archivePath);
-        File parent = file.getParentFile();
-
-        if (parent != null && !parent.exists()) {
-            if (!parent.mkdirs()) {
-                throw new ShonksException("Could not create archive folder.");
-            }
-        }
+    @Override
+    public void archive(List<Task> tasks) throws ShonksException {
+        archive.append(tasks);
+    }
 
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file, true))) { // append = true
-            for (Task task : tasks) {
-                bw.write(task.toStorageString());
-                bw.newLine();
-            }
-        } catch (IOException e) {
-            throw new ShonksException("Error archiving data.");
-        }
+    @Override
+    public int archivedCount() throws ShonksException {
+        return archive.size();
     }
 
-    public ArrayList<Task> loadFromPath(String path) throws ShonksException {
-        assert path != null && !path.isEmpty() : "Path should be non-empty";
-        return loadFromFile(new File(path), new ArrayList<>(), "Error loading data.");
+    /**
+     * Removes one task from the archive and returns it.
+     * <p>
+     * Only the segment holding the task is read: a sealed segment is decompressed and
+     * rewritten without it, while the active segment is reached through its offset index and
+     * the task is marked as restored in place.
+     *
+     * @param index 0-based position among the archived tasks.
+     * @return The restored task.
+     * @throws ShonksException If there is no such task or the archive cannot be read.
+     */
+    @Override
+    public Task restoreFromArchive(int index) throws ShonksException {
+        return archive.restore(index);
     }
 
-    public void overwriteTo(String path, ArrayList<Task> tasks) throws ShonksException {
-        assert path != null && !path.isEmpty() : "Path should be non-empty";
-        assert tasks != null : "Tasks to write should not be null";
-        writeToPath(path, tasks, false, "Could not create folder.", "Error writing data.");
+    @Override
+    public List<Task> restoreAllFromArchive() throws ShonksException {
+        return archive.restoreAll();
     }
 
     private static ArrayList<Task> loadFromFile(File file,
                                            ArrayList<Task> tasks,
+                                           Map<String, String> headers,
                                            String ioErrorMessage) throws ShonksException {
         if (!file.exists()) {
             return tasks;
         }
 
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                if (line.trim().isEmpty()) {
-                    continue;
-                }
-                tasks.add(Task.fromStorageString(line));
-            }
+        try {
+            return MappedTextLoader.read(file, tasks, headers);
         } catch (IOException e) {
             throw new ShonksException(ioErrorMessage);
         }
+    }
 
-        return tasks;
+    /**
+     * Formats the ids of the given tasks as compact ranges, e.g. {@code 1-500,502-900}.
+     * Ids only ever grow along the list, so a few ranges usually cover the whole file.
+     */
+    static String formatIdRanges(List<Task> tasks) {
+        StringBuilder sb = new StringBuilder();
+        int i = 0;
+        while (i < tasks.size()) {
+            long start = tasks.get(i).getId();
+            long end = start;
+            while (i + 1 < tasks.size() && tasks.get(i + 1).getId() == end + 1) {
+                end++;
+                i++;
+            }
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(start).append('-').append(end);
+            i++;
+        }
+        return sb.toString();
     }
 
-    private static void writeToPath(String path,
-                                    ArrayList<Task> tasks,
-                                    boolean append,
-                                    String mkdirErrorMessage,
-                                    String ioErrorMessage) throws ShonksException {
-        File file = new File(path);
-        File parent = file.getParentFile();
+    /**
+     * Assigns ids to freshly loaded snapshot tasks, either from the ranges recorded in the
+     * snapshot header or positionally (1, 2, 3...) for files written without one.
+     */
+    static void assignIds(List<Task> tasks, String idRanges) throws ShonksException {
+        long[] ids = parseIdRanges(idRanges, tasks.size());
+        for (int i = 0; i < ids.length; i++) {
+            tasks.get(i).assignId(ids[i]);
+        }
+    }
 
-        if (parent != null && !parent.exists()) {
-            if (!parent.mkdirs()) {
-                throw new ShonksException(mkdirErrorMessage);
+    private static long[] parseIdRanges(String idRanges, int count) throws ShonksException {
+        long[] ids = new long[count];
+        if (idRanges == null || idRanges.isEmpty()) {
+            for (int i = 0; i < count; i++) {
+                ids[i] = i + 1;
             }
+            return ids;
         }
 
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file, append))) {
-            for (Task task : tasks) {
-                assert task != null : "Task in list should not be null";
-                bw.write(task.toStorageString());
-                bw.newLine();
+        int i = 0;
+        try {
+            for (String range : idRanges.split(",")) {
+                String[] bounds = range.split("-");
+                long start = Long.parseLong(bounds[0]);
+                long end = Long.parseLong(bounds[1]);
+                for (long id = start; id <= end; id++) {
+                    ids[i++] = id;
+                }
             }
-        } catch (IOException e) {
-            throw new ShonksException(ioErrorMessage);
+        } catch (RuntimeException e) {
+            throw new ShonksException("Corrupted save file header: ids do not match tasks.");
+        }
+        if (i != count) {
+            throw new ShonksException("Corrupted save file header: ids do not match tasks.");
         }
+        return ids;
     }
 }
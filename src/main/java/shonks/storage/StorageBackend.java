@@ -0,0 +1,147 @@
+package shonks.storage;
+
+import java.util.List;
+
+import shonks.ShonksException;
+import shonks.task.Task;
+import shonks.task.TaskList;
+
+/**
+ * Where Shonks keeps its tasks and its archive.
+ * <p>
+ * Handlers only talk to this interface, so the file-backed {@link Storage} can be swapped for
+ * another engine, or for {@link InMemoryStorage} to measure commands without disk I/O.
+ * <p>
+ * A mutation is persisted either by {@link #requestSave(TaskList)}, which hands over the whole
+ * list, or, if {@link #isIncremental()} is true, by the matching log method alone.
+ */
+public interface StorageBackend {
+
+    /**
+     * Loads the saved task list, or an empty one if nothing was saved yet.
+     *
+     * @return The loaded task list.
+     * @throws ShonksException If the saved data cannot be read.
+     */
+    TaskList load() throws ShonksException;
+
+    /**
+     * Loads the saved task list, decoding tasks on first access where the backend can.
+     *
+     * @param cacheSize Maximum number of decoded tasks kept in memory.
+     * @return The loaded task list.
+     * @throws ShonksException If the saved data cannot be read.
+     */
+    TaskList loadLazily(int cacheSize) throws ShonksException;
+
+    /**
+     * Replaces everything saved with the given tasks.
+     *
+     * @param tasks The tasks to save, in list order.
+     * @throws ShonksException If saving fails.
+     */
+    void save(List<Task> tasks) throws ShonksException;
+
+    /**
+     * Saves the task list if it changed since it was last persisted. The backend may defer the
+     * write (see {@link #enableWriteBehind(TaskList, long)}).
+     *
+     * @param tasks The task list to save.
+     * @throws ShonksException If saving fails.
+     */
+    void requestSave(TaskList tasks) throws ShonksException;
+
+    /**
+     * Returns whether single mutations are persisted through the log methods instead of
+     * {@link #requestSave(TaskList)}.
+     *
+     * @return Whether to use the log methods.
+     */
+    boolean isIncremental();
+
+    void logAdd(Task task) throws ShonksException;
+
+    void logMark(Task task) throws ShonksException;
+
+    void logUnmark(Task task) throws ShonksException;
+
+    void logDelete(Task task) throws ShonksException;
+
+    void logClear() throws ShonksException;
+
+    /**
+     * Gives the backend a chance to fold logged mutations into a full save.
+     *
+     * @param tasks The current task list.
+     * @throws ShonksException If compaction cannot be started.
+     */
+    void compactIfNeeded(TaskList tasks) throws ShonksException;
+
+    /**
+     * Lets writes of the given task list happen in the background, at most
+     * {@code flushDelayMillis} after the mutation. Backends with nothing to defer ignore this.
+     *
+     * @param tasks The task list that is persisted.
+     * @param flushDelayMillis Longest time a mutation waits before it is written.
+     */
+    void enableWriteBehind(TaskList tasks, long flushDelayMillis);
+
+    /**
+     * Blocks until every change requested so far has been written.
+     *
+     * @throws ShonksException If writing fails.
+     */
+    void sync() throws ShonksException;
+
+    /**
+     * Returns why the last background write failed, once, or null if it did not fail.
+     *
+     * @return The error message, or null.
+     */
+    String takeSaveFailure();
+
+    /**
+     * Returns the outcome of the most recent background compaction or merge.
+     *
+     * @return The report, or null if the backend has not compacted anything yet.
+     */
+    CompactionReport getLastCompaction();
+
+    /**
+     * Moves the given tasks to the end of the archive. The task list itself is left as is.
+     *
+     * @param tasks Tasks to archive.
+     * @throws ShonksException If archiving fails.
+     */
+    void archive(List<Task> tasks) throws ShonksException;
+
+    /**
+     * Returns the number of archived tasks that have not been restored yet.
+     *
+     * @return The number of archived tasks.
+     * @throws ShonksException If the archive cannot be read.
+     */
+    int archivedCount() throws ShonksException;
+
+    /**
+     * Removes one task from the archive and returns it.
+     *
+     * @param index 0-based position among the archived tasks.
+     * @return The restored task.
+     * @throws ShonksException If there is no such task or the archive cannot be read.
+     */
+    Task restoreFromArchive(int index) throws ShonksException;
+
+    /**
+     * Removes every task from the archive and returns them in archive order.
+     *
+     * @return The restored tasks.
+     * @throws ShonksException If the archive cannot be read or cleared.
+     */
+    List<Task> restoreAllFromArchive() throws ShonksException;
+
+    /**
+     * Writes out pending changes and releases the backend. Call before the application exits.
+     */
+    void close();
+}
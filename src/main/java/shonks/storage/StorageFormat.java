@@ -0,0 +1,13 @@
+package shonks.storage;
+
+/**
+ * On-disk formats for the task data file.
+ */
+public enum StorageFormat {
+    /** One {@code TYPE | 0/1 | description | ...} line per task; human-editable. */
+    TEXT,
+    /** Compact versioned binary records; see {@link BinaryCodec}. */
+    BINARY,
+    /** Fixed-size slots updated in place, descriptions in a side heap; see {@link SlotFile}. */
+    SLOTTED
+}
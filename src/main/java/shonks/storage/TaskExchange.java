@@ -0,0 +1,472 @@
+package shonks.storage;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import shonks.ShonksException;
+import shonks.task.Deadline;
+import shonks.task.DescriptionPool;
+import shonks.task.Event;
+import shonks.task.Task;
+import shonks.task.Todo;
+
+/**
+ * Streams tasks to and from exchange files, one record per line, through fixed-size buffers:
+ * neither direction ever holds the whole file in memory.
+ * <p>
+ * The format follows the file extension:
+ * <pre>
+ * .csv            type,done,description,by,from,to   (header line, RFC 4180 quoting)
+ * .jsonl/.json    {"type":"D","done":false,"description":"...","by":"2026-03-15"}
+ * </pre>
+ * Types and dates are written as in the save file: {@code T}/{@code D}/{@code E}, ISO-8601
+ * dates. Descriptions the save file cannot hold (line breaks, {@code " | "}) are rejected.
+ */
+public class TaskExchange {
+    /**
+     * Exchange file formats.
+     */
+    public enum Format {
+        CSV, JSON_LINES
+    }
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String CSV_HEADER = "type,done,description,by,from,to";
+
+    private TaskExchange() {
+    }
+
+    /**
+     * Returns the format implied by the file extension.
+     *
+     * @param path Path of the exchange file.
+     * @return The format.
+     * @throws ShonksException If the extension is not a known format.
+     */
+    public static Format formatOf(String path) throws ShonksException {
+        String lower = path.toLowerCase();
+        if (lower.endsWith(".csv")) {
+            return Format.CSV;
+        }
+        if (lower.endsWith(".jsonl") || lower.endsWith(".json")) {
+            return Format.JSON_LINES;
+        }
+        throw new ShonksException("Use a .csv or .jsonl file. I am not inventing a format for you.");
+    }
+
+    /**
+     * Writes the tasks to a new exchange file, replacing it atomically once complete.
+     *
+     * @param tasks The tasks to export, in list order.
+     * @param path Path of the exchange file.
+     * @return The number of tasks written.
+     * @throws ShonksException If the file cannot be written.
+     */
+    public static int export(List<Task> tasks, String path) throws ShonksException {
+        Format format = formatOf(path);
+        File file = new File(path);
+        File temp = new File(path + ".tmp");
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new ShonksException("Could not create export folder.");
+        }
+
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(temp), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            if (format == Format.CSV) {
+                out.write(CSV_HEADER);
+                out.write('\n');
+            }
+            for (int i = 0; i < tasks.size(); i++) {
+                out.write(format == Format.CSV ? toCsv(tasks.get(i)) : toJson(tasks.get(i)));
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            temp.delete();
+            throw new ShonksException("Error exporting tasks.");
+        }
+
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new ShonksException("Error exporting tasks.");
+        }
+        return tasks.size();
+    }
+
+    /**
+     * Opens an exchange file for reading in batches.
+     *
+     * @param path Path of the exchange file.
+     * @return A reader the caller must close.
+     * @throws ShonksException If the file does not exist or cannot be opened.
+     */
+    public static BatchReader openImport(String path) throws ShonksException {
+        Format format = formatOf(path);
+        try {
+            return new BatchReader(format, new BufferedReader(new InputStreamReader(
+                    new FileInputStream(path), StandardCharsets.UTF_8), BUFFER_SIZE));
+        } catch (IOException e) {
+            throw new ShonksException("Cannot open " + path + ". Does it even exist?");
+        }
+    }
+
+    /**
+     * Reads the records of an exchange file a batch at a time.
+     */
+    public static class BatchReader implements AutoCloseable {
+        private final Format format;
+        private final BufferedReader in;
+        private int lineNumber;
+
+        private BatchReader(Format format, BufferedReader in) {
+            this.format = format;
+            this.in = in;
+        }
+
+        /**
+         * Reads up to {@code maxSize} tasks.
+         *
+         * @param maxSize Largest batch to return.
+         * @return The next tasks, or an empty list at the end of the file.
+         * @throws ShonksException If the file cannot be read or a record is malformed.
+         */
+        public List<Task> nextBatch(int maxSize) throws ShonksException {
+            assert maxSize > 0 : "Batch size should be positive";
+            List<Task> batch = new ArrayList<>(Math.min(maxSize, 1024));
+            try {
+                String line;
+                while (batch.size() < maxSize && (line = in.readLine()) != null) {
+                    lineNumber++;
+                    if (line.isBlank() || (lineNumber == 1 && line.trim().equals(CSV_HEADER))) {
+                        continue;
+                    }
+                    batch.add(format == Format.CSV ? fromCsv(line) : fromJson(line));
+                }
+            } catch (IOException e) {
+                throw new ShonksException("Error reading import file.");
+            } catch (ShonksException | RuntimeException e) {
+                throw new ShonksException("Line " + lineNumber + " is broken: " + e.getMessage());
+            }
+            return batch;
+        }
+
+        @Override
+        public void close() throws ShonksException {
+            try {
+                in.close();
+            } catch (IOException e) {
+                throw new ShonksException("Error reading import file.");
+            }
+        }
+    }
+
+    static String toCsv(Task task) {
+        String[] fields = fieldsOf(task);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            String field = fields[i] == null ? "" : fields[i];
+            if (field.indexOf(',') >= 0 || field.indexOf('"') >= 0 || field.indexOf('\n') >= 0
+                    || field.indexOf('\r') >= 0) {
+                sb.append('"').append(field.replace("\"", "\"\"")).append('"');
+            } else {
+                sb.append(field);
+            }
+        }
+        return sb.toString();
+    }
+
+    static Task fromCsv(String line) throws ShonksException {
+        List<String> fields = new ArrayList<>(6);
+        StringBuilder field = new StringBuilder();
+        boolean isQuoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (isQuoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    isQuoted = false;
+                }
+            } else if (c == '"') {
+                isQuoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (isQuoted) {
+            throw new ShonksException("unclosed quote");
+        }
+        fields.add(field.toString());
+        while (fields.size() < 6) {
+            fields.add("");
+        }
+        return toTask(fields.get(0), fields.get(1), fields.get(2), fields.get(3), fields.get(4), fields.get(5));
+    }
+
+    static String toJson(Task task) {
+        String[] fields = fieldsOf(task);
+        StringBuilder sb = new StringBuilder("{\"type\":");
+        appendJsonString(sb, fields[0]);
+        sb.append(",\"done\":").append(task.isDone());
+        sb.append(",\"description\":");
+        appendJsonString(sb, fields[2]);
+        String[] names = {"by", "from", "to"};
+        for (int i = 0; i < names.length; i++) {
+            if (fields[3 + i] != null) {
+                sb.append(",\"").append(names[i]).append("\":");
+                appendJsonString(sb, fields[3 + i]);
+            }
+        }
+        return sb.append('}').toString();
+    }
+
+    static Task fromJson(String line) throws ShonksException {
+        String type = "";
+        String done = "";
+        String description = "";
+        String by = "";
+        String from = "";
+        String to = "";
+
+        JsonCursor cursor = new JsonCursor(line);
+        cursor.expect('{');
+        if (!cursor.tryConsume('}')) {
+            do {
+                String key = cursor.readString();
+                cursor.expect(':');
+                String value = cursor.readValue();
+                switch (key) {
+                case "type":
+                    type = value;
+                    break;
+                case "done":
+                    done = value;
+                    break;
+                case "description":
+                    description = value;
+                    break;
+                case "by":
+                    by = value;
+                    break;
+                case "from":
+                    from = value;
+                    break;
+                case "to":
+                    to = value;
+                    break;
+                default:
+                    break; // unknown keys are ignored
+                }
+            } while (cursor.tryConsume(','));
+            cursor.expect('}');
+        }
+        return toTask(type, done, description, by, from, to);
+    }
+
+    /**
+     * Returns type, done, description, by, from and to of a task; fields a type does not
+     * have are null.
+     */
+    private static String[] fieldsOf(Task task) {
+        String done = task.isDone() ? "1" : "0";
+        if (task instanceof Deadline) {
+            return new String[] {"D", done, task.getDescription(), ((Deadline) task).getBy().toString(), null, null};
+        }
+        if (task instanceof Event) {
+            Event event = (Event) task;
+            return new String[] {"E", done, task.getDescription(), null,
+                    event.getFrom().toString(), event.getTo().toString()};
+        }
+        return new String[] {"T", done, task.getDescription(), null, null, null};
+    }
+
+    private static Task toTask(String type, String done, String description, String by, String from, String to)
+            throws ShonksException {
+        if (description == null || description.isBlank()) {
+            throw new ShonksException("missing description");
+        }
+        if (description.contains(" | ") || description.indexOf('\n') >= 0 || description.indexOf('\r') >= 0) {
+            throw new ShonksException("descriptions cannot contain line breaks or ' | '");
+        }
+        description = DescriptionPool.intern(description);
+        Task task;
+        try {
+            switch (type.trim().toUpperCase()) {
+            case "T":
+                task = new Todo(description);
+                break;
+            case "D":
+                task = new Deadline(description, LocalDate.parse(by.trim()));
+                break;
+            case "E":
+                task = new Event(description, LocalDateTime.parse(from.trim()), LocalDateTime.parse(to.trim()));
+                break;
+            default:
+                throw new ShonksException("unknown type '" + type + "'");
+            }
+        } catch (DateTimeParseException e) {
+            throw new ShonksException("bad date '" + e.getParsedString() + "'");
+        }
+        String flag = done.trim();
+        if (flag.equals("1") || flag.equalsIgnoreCase("true")) {
+            task.markDone();
+        } else if (!flag.isEmpty() && !flag.equals("0") && !flag.equalsIgnoreCase("false")) {
+            throw new ShonksException("done should be 0/1 or true/false");
+        }
+        return task;
+    }
+
+    private static void appendJsonString(StringBuilder sb, String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                sb.append("\\\"");
+                break;
+            case '\\':
+                sb.append("\\\\");
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            case '\r':
+                sb.append("\\r");
+                break;
+            case '\t':
+                sb.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * Reads one flat JSON object whose values are strings, booleans, numbers or null.
+     */
+    private static class JsonCursor {
+        private final String text;
+        private int at;
+
+        JsonCursor(String text) {
+            this.text = text;
+        }
+
+        void expect(char c) throws ShonksException {
+            if (!tryConsume(c)) {
+                throw new ShonksException("expected '" + c + "' at column " + (at + 1));
+            }
+        }
+
+        boolean tryConsume(char c) {
+            skipWhitespace();
+            if (at < text.length() && text.charAt(at) == c) {
+                at++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Reads a value as text: strings unescaped, null as an empty string.
+         */
+        String readValue() throws ShonksException {
+            skipWhitespace();
+            if (at < text.length() && text.charAt(at) == '"') {
+                return readString();
+            }
+            int start = at;
+            while (at < text.length() && ",}".indexOf(text.charAt(at)) < 0 && !Character.isWhitespace(text.charAt(at))) {
+                at++;
+            }
+            String literal = text.substring(start, at);
+            if (literal.isEmpty()) {
+                throw new ShonksException("missing value at column " + (start + 1));
+            }
+            return literal.equals("null") ? "" : literal;
+        }
+
+        String readString() throws ShonksException {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (at < text.length()) {
+                char c = text.charAt(at++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (at >= text.length()) {
+                    break;
+                }
+                char escaped = text.charAt(at++);
+                switch (escaped) {
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'u':
+                    if (at + 4 > text.length()) {
+                        throw new ShonksException("bad \\u escape");
+                    }
+                    sb.append((char) Integer.parseInt(text.substring(at, at + 4), 16));
+                    at += 4;
+                    break;
+                default:
+                    sb.append(escaped); // \" \\ \/
+                }
+            }
+            throw new ShonksException("unclosed string");
+        }
+
+        private void skipWhitespace() {
+            while (at < text.length() && Character.isWhitespace(text.charAt(at))) {
+                at++;
+            }
+        }
+    }
+}
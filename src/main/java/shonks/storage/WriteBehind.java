@@ -0,0 +1,135 @@
+package shonks.storage;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import shonks.ShonksException;
+import shonks.task.Task;
+import shonks.task.TaskList;
+
+/**
+ * Persists the task list on a background writer thread, so commands only mark it dirty.
+ * <p>
+ * The first mutation after a write schedules a flush {@code flushDelayMillis} later; every
+ * mutation until then rides along (group commit), so a burst of 10k adds costs one write and
+ * no change waits longer than the delay to reach the disk.
+ * <p>
+ * Commands must hold the task list's monitor while they mutate it. The writer takes the same
+ * monitor only to capture a {@link TaskList#snapshot()}, then writes without it. Lock order is
+ * always task list, then {@code writeLock}, so {@link #sync()} may be called from a command.
+ */
+class WriteBehind {
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "shonks-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Storage storage;
+    private final TaskList tasks;
+    private final long flushDelayMillis;
+
+    private boolean isDirty;       // guarded by this
+    private boolean isScheduled;   // guarded by this
+    private int flushCount;        // guarded by writeLock
+    private volatile String failure;
+
+    WriteBehind(Storage storage, TaskList tasks, long flushDelayMillis) {
+        assert flushDelayMillis >= 0 : "Flush delay should be non-negative";
+        this.storage = storage;
+        this.tasks = tasks;
+        this.flushDelayMillis = flushDelayMillis;
+    }
+
+    synchronized void markDirty() {
+        isDirty = true;
+        if (!isScheduled) {
+            isScheduled = true;
+            executor.schedule(this::flushInBackground, flushDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized boolean takeDirty() {
+        boolean wasDirty = isDirty;
+        isDirty = false;
+        isScheduled = false;
+        return wasDirty;
+    }
+
+    private void flushInBackground() {
+        try {
+            flush();
+        } catch (ShonksException e) {
+            failure = e.getMessage();
+        }
+    }
+
+    /**
+     * Blocks until every mutation marked so far is on disk, writing it on the calling thread
+     * if the writer has not picked it up yet.
+     *
+     * @throws ShonksException If the write fails.
+     */
+    void sync() throws ShonksException {
+        flush();
+    }
+
+    private void flush() throws ShonksException {
+        List<Task> snapshot = null;
+        long modCount = 0;
+        boolean isDirty;
+        synchronized (tasks) {
+            writeLock.lock();
+            isDirty = takeDirty() && (storage.isIncremental() || tasks.isDirty());
+            if (isDirty && !storage.isIncremental()) {
+                modCount = tasks.getModCount();
+                snapshot = tasks.snapshot();
+            }
+        }
+
+        try {
+            if (!isDirty) {
+                return;
+            }
+            if (snapshot == null) {
+                storage.flushIncremental();
+            } else {
+                storage.save(snapshot);
+                tasks.markPersisted(modCount);
+            }
+            flushCount++;
+        } catch (ShonksException e) {
+            synchronized (this) {
+                this.isDirty = true; // retried on the next mutation or sync
+            }
+            throw e;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the message of a failed background write, once, or null if there was none.
+     */
+    String takeFailure() {
+        String message = failure;
+        failure = null;
+        return message;
+    }
+
+    int flushCount() {
+        writeLock.lock();
+        try {
+            return flushCount;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,98 @@
+package shonks.task;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Default store that keeps every task as an object in an {@link ArrayList}.
+ * <p>
+ * Removed tasks stay in their slot as tombstones, tracked by {@link LiveSlots}, so removal
+ * is O(log n) instead of shifting the rest of the list. The slots are compacted once more
+ * than half of them are dead, which keeps the cost amortized O(1) per removal.
+ */
+class ArrayTaskStore implements TaskStore {
+    private ArrayList<Task> slots;
+    private LiveSlots live;
+
+    ArrayTaskStore(ArrayList<Task> tasks) {
+        this.slots = tasks;
+        this.live = new LiveSlots(tasks.size());
+    }
+
+    @Override
+    public int size() {
+        return live.liveCount();
+    }
+
+    @Override
+    public Task get(int index) {
+        return slots.get(live.slotOf(index));
+    }
+
+    @Override
+    public long idAt(int index) {
+        return get(index).getId();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Tombstones keep their task, so the binary search runs over every slot.
+     */
+    @Override
+    public int indexOfId(long id) {
+        int low = 0;
+        int high = slots.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = slots.get(mid).getId();
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return live.isLive(mid) ? live.positionOf(mid) : -1;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void add(Task task) {
+        slots.add(task);
+        live.append();
+    }
+
+    @Override
+    public Task remove(int index) {
+        int slot = live.slotOf(index);
+        live.kill(slot);
+        Task task = slots.get(slot);
+        if (live.deadCount() > live.liveCount()) {
+            slots = liveTasks();
+            live = new LiveSlots(slots.size());
+        }
+        return task;
+    }
+
+    @Override
+    public void clear() {
+        slots.clear();
+        live = new LiveSlots(0);
+    }
+
+    @Override
+    public List<Task> snapshot() {
+        return live.deadCount() == 0 ? new ArrayList<>(slots) : liveTasks();
+    }
+
+    private ArrayList<Task> liveTasks() {
+        ArrayList<Task> tasks = new ArrayList<>(live.liveCount());
+        for (int slot = 0; slot < slots.size(); slot++) {
+            if (live.isLive(slot)) {
+                tasks.add(slots.get(slot));
+            }
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,389 @@
+package shonks.task;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Store that keeps tasks in parallel primitive columns instead of one object graph per task.
+ * <p>
+ * Each slot has a type byte, a done bit, its id, the end offset of its description in a
+ * packed UTF-8 heap, and two date columns: the epoch day of a deadline, or the UTC epoch
+ * seconds an event starts and ends at (sub-second parts, which typed-in dates never have,
+ * go in a column that is only allocated once one shows up). That is about 30 bytes plus
+ * the description per task, where a {@link Task} object with its string and dates takes
+ * several times that.
+ * <p>
+ * Task objects are only views: {@link #get} decodes one from the columns and keeps it in a
+ * bounded LRU cache, so repeated access returns the same object. When a view is evicted its
+ * done flag, the only part of a task that can change, is written back into the done column.
+ * Tasks of any other class than {@link Todo}, {@link Deadline} and {@link Event} are kept as
+ * objects for good.
+ * <p>
+ * The heap is a list of chunks, each one byte array, and a new chunk is started whenever a
+ * description does not fit in the last one; {@code chunkStarts} holds the first slot of each
+ * chunk, and end offsets are relative to the slot's chunk.
+ * <p>
+ * Removed tasks stay in their slot as tombstones, tracked by {@link LiveSlots}, until more
+ * than half of the slots are dead and the columns and heap are compacted.
+ * <p>
+ * Decoded descriptions go through {@link DescriptionPool#intern}, like those of the loaders.
+ */
+class ColumnTaskStore implements TaskStore {
+    private static final byte TYPE_TODO = 0;
+    private static final byte TYPE_DEADLINE = 1;
+    private static final byte TYPE_EVENT = 2;
+    private static final byte TYPE_PINNED = 3;
+    private static final int MAX_CHUNK_SIZE = Integer.MAX_VALUE - 8;   // largest byte[] the VM allows
+    private static final int MIN_CHUNK_SIZE = 256;
+
+    private final Map<Long, Task> pinned = new HashMap<>();
+    private final LinkedHashMap<Long, Task> views;
+    private byte[] types;
+    private BitSet done = new BitSet();
+    private long[] ids;
+    private int[] ends;                          // end of each description in its chunk
+    private long[] firsts;                       // deadline epoch day or event start second
+    private long[] seconds;                      // event end second
+    private long[] nanos;                        // event start nanos << 32 | end nanos
+    private final int chunkSize;
+    private byte[][] chunks;
+    private int[] chunkStarts;                   // first slot of each chunk
+    private int chunkCount;
+    private int heapSize;                        // bytes used in the last chunk
+    private int slotCount;
+    private LiveSlots live = new LiveSlots(0);
+
+    /**
+     * Creates an empty store.
+     *
+     * @param cacheSize Maximum number of task views kept in memory.
+     * @param capacity Number of tasks to make room for up front.
+     */
+    ColumnTaskStore(int cacheSize, int capacity) {
+        this(cacheSize, capacity, MAX_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates an empty store whose heap chunks hold at most {@code chunkSize} bytes.
+     */
+    ColumnTaskStore(int cacheSize, int capacity, int chunkSize) {
+        assert cacheSize > 0 : "Cache size should be positive";
+        assert chunkSize >= MIN_CHUNK_SIZE : "Chunk size should fit at least a few descriptions";
+        this.chunkSize = chunkSize;
+        resetHeap();
+        grow(Math.max(16, capacity));
+        this.views = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Task> eldest) {
+                if (size() <= cacheSize) {
+                    return false;
+                }
+                writeBackDone(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return live.liveCount();
+    }
+
+    @Override
+    public Task get(int index) {
+        int slot = live.slotOf(index);
+        long id = ids[slot];
+        if (types[slot] == TYPE_PINNED) {
+            return pinned.get(id);
+        }
+        Task task = views.get(id);
+        if (task == null) {
+            task = decode(slot);
+            views.put(id, task);
+        }
+        return task;
+    }
+
+    @Override
+    public long idAt(int index) {
+        return ids[live.slotOf(index)];
+    }
+
+    @Override
+    public int indexOfId(long id) {
+        int slot = Arrays.binarySearch(ids, 0, slotCount, id);
+        return slot >= 0 && live.isLive(slot) ? live.positionOf(slot) : -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The added object becomes the task's first view, so callers holding on to it see the
+     * same task as later lookups while it stays cached.
+     */
+    @Override
+    public void add(Task task) {
+        assert slotCount == 0 || task.getId() > ids[slotCount - 1] : "Task ids should grow along the list";
+        if (slotCount == ids.length) {
+            grow(Math.max(16, slotCount + (slotCount >> 1)));
+        }
+        int slot = slotCount;
+        ids[slot] = task.getId();
+        done.set(slot, task.isDone());
+        Class<?> type = task.getClass();
+        if (type == Todo.class) {
+            types[slot] = TYPE_TODO;
+        } else if (type == Deadline.class) {
+            types[slot] = TYPE_DEADLINE;
+            firsts[slot] = ((Deadline) task).getBy().toEpochDay();
+        } else if (type == Event.class) {
+            types[slot] = TYPE_EVENT;
+            setTimes(slot, ((Event) task).getFrom(), ((Event) task).getTo());
+        } else {
+            types[slot] = TYPE_PINNED;
+        }
+
+        if (types[slot] == TYPE_PINNED) {
+            pinned.put(task.getId(), task);
+            ends[slot] = heapSize;
+        } else {
+            byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+            appendDescription(slot, description, 0, description.length);
+            views.put(task.getId(), task);
+        }
+        slotCount++;
+        live.append();
+    }
+
+    private void setTimes(int slot, LocalDateTime from, LocalDateTime to) {
+        firsts[slot] = from.toEpochSecond(ZoneOffset.UTC);
+        seconds[slot] = to.toEpochSecond(ZoneOffset.UTC);
+        long packedNanos = ((long) from.getNano() << 32) | to.getNano();
+        if (packedNanos != 0 && nanos == null) {
+            nanos = new long[ids.length];
+        }
+        if (nanos != null) {
+            nanos[slot] = packedNanos;
+        }
+    }
+
+    private void appendDescription(int slot, byte[] bytes, int offset, int length) {
+        if (length > chunkSize - heapSize) {
+            startChunk(slot, length);
+        }
+        byte[] heap = chunks[chunkCount - 1];
+        if (heapSize + length > heap.length) {
+            long capacity = Math.max((long) heapSize + length, (long) heap.length + (heap.length >> 1));
+            heap = Arrays.copyOf(heap, (int) Math.min(capacity, chunkSize));
+            chunks[chunkCount - 1] = heap;
+        }
+        System.arraycopy(bytes, offset, heap, heapSize, length);
+        heapSize += length;
+        ends[slot] = heapSize;
+    }
+
+    /**
+     * Starts a new chunk at the given slot. A description longer than a whole chunk, which
+     * only a small test chunk size allows, gets a chunk of its own.
+     */
+    private void startChunk(int slot, int length) {
+        if (chunkCount == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            chunkStarts = Arrays.copyOf(chunkStarts, chunkCount * 2);
+        }
+        chunks[chunkCount] = new byte[Math.max(MIN_CHUNK_SIZE, length)];
+        chunkStarts[chunkCount] = slot;
+        chunkCount++;
+        heapSize = 0;
+    }
+
+    private void resetHeap() {
+        chunks = new byte[][] {new byte[MIN_CHUNK_SIZE]};
+        chunkStarts = new int[] {0};
+        chunkCount = 1;
+        heapSize = 0;
+    }
+
+    /**
+     * Returns the chunk holding the description of the given slot.
+     */
+    private int chunkOf(int slot) {
+        int found = Arrays.binarySearch(chunkStarts, 0, chunkCount, slot);
+        return found >= 0 ? found : -found - 2;
+    }
+
+    private int startOf(int slot, int chunk) {
+        return slot == chunkStarts[chunk] ? 0 : ends[slot - 1];
+    }
+
+    private void grow(int capacity) {
+        if (ids == null) {
+            types = new byte[capacity];
+            ids = new long[capacity];
+            ends = new int[capacity];
+            firsts = new long[capacity];
+            seconds = new long[capacity];
+            return;
+        }
+        types = Arrays.copyOf(types, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        firsts = Arrays.copyOf(firsts, capacity);
+        seconds = Arrays.copyOf(seconds, capacity);
+        if (nanos != null) {
+            nanos = Arrays.copyOf(nanos, capacity);
+        }
+    }
+
+    @Override
+    public Task remove(int index) {
+        Task task = get(index);
+        int slot = live.slotOf(index);
+        live.kill(slot);
+        views.remove(ids[slot]);
+        pinned.remove(ids[slot]);
+        if (live.deadCount() > live.liveCount()) {
+            compact();
+        }
+        return task;
+    }
+
+    /**
+     * Moves the live slots to the front of every column and rewrites the heap without the
+     * descriptions of removed tasks.
+     */
+    private void compact() {
+        byte[][] oldChunks = chunks;
+        int[] oldChunkStarts = chunkStarts;
+        int oldChunkCount = chunkCount;
+        resetHeap();
+        BitSet liveDone = new BitSet(live.liveCount());
+        int kept = 0;
+        int oldChunk = 0;
+        int oldStart = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (oldChunk + 1 < oldChunkCount && oldChunkStarts[oldChunk + 1] == slot) {
+                oldChunk++;
+                oldStart = 0;
+            }
+            int start = oldStart;
+            int end = ends[slot];
+            oldStart = end;     // read before ends[kept] may overwrite it
+            if (!live.isLive(slot)) {
+                continue;
+            }
+            if (types[slot] == TYPE_PINNED) {
+                ends[kept] = heapSize;
+            } else {
+                appendDescription(kept, oldChunks[oldChunk], start, end - start);
+            }
+            types[kept] = types[slot];
+            liveDone.set(kept, done.get(slot));
+            ids[kept] = ids[slot];
+            firsts[kept] = firsts[slot];
+            seconds[kept] = seconds[slot];
+            if (nanos != null) {
+                nanos[kept] = nanos[slot];
+            }
+            kept++;
+        }
+        done = liveDone;
+        slotCount = kept;
+        live = new LiveSlots(kept);
+    }
+
+    @Override
+    public void clear() {
+        slotCount = 0;
+        resetHeap();    // snapshots may still be reading the old chunks
+        done.clear();
+        live = new LiveSlots(0);
+        views.clear();
+        pinned.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Done flags of cached views are written back and tombstones compacted away first. The
+     * copy shares the heap chunks, which are only ever appended to or replaced, and copies the
+     * other columns; tasks are decoded by whichever thread reads it, without touching the cache.
+     */
+    @Override
+    public List<Task> snapshot() {
+        for (Task view : views.values()) {
+            writeBackDone(view);
+        }
+        if (live.deadCount() > 0) {
+            compact();
+        }
+        ColumnTaskStore copy = new ColumnTaskStore(1, 0);
+        copy.types = Arrays.copyOf(types, slotCount);
+        copy.done = (BitSet) done.clone();
+        copy.ids = Arrays.copyOf(ids, slotCount);
+        copy.ends = Arrays.copyOf(ends, slotCount);
+        copy.firsts = Arrays.copyOf(firsts, slotCount);
+        copy.seconds = Arrays.copyOf(seconds, slotCount);
+        copy.nanos = nanos == null ? null : Arrays.copyOf(nanos, slotCount);
+        copy.chunks = Arrays.copyOf(chunks, chunkCount);
+        copy.chunkStarts = Arrays.copyOf(chunkStarts, chunkCount);
+        copy.chunkCount = chunkCount;
+        copy.heapSize = heapSize;
+        copy.slotCount = slotCount;
+        copy.pinned.putAll(pinned);
+        return new AbstractList<>() {
+            @Override
+            public Task get(int index) {
+                return copy.types[index] == TYPE_PINNED ? copy.pinned.get(copy.ids[index]) : copy.decode(index);
+            }
+
+            @Override
+            public int size() {
+                return copy.slotCount;
+            }
+        };
+    }
+
+    private void writeBackDone(Task task) {
+        int slot = Arrays.binarySearch(ids, 0, slotCount, task.getId());
+        if (slot >= 0) {
+            done.set(slot, task.isDone());
+        }
+    }
+
+    private Task decode(int slot) {
+        int chunk = chunkOf(slot);
+        int start = startOf(slot, chunk);
+        String description = DescriptionPool.intern(
+                new String(chunks[chunk], start, ends[slot] - start, StandardCharsets.UTF_8));
+        Task task;
+        switch (types[slot]) {
+        case TYPE_DEADLINE:
+            task = new Deadline(description, LocalDate.ofEpochDay(firsts[slot]));
+            break;
+        case TYPE_EVENT:
+            long packedNanos = nanos == null ? 0 : nanos[slot];
+            task = new Event(description,
+                    LocalDateTime.ofEpochSecond(firsts[slot], (int) (packedNanos >>> 32), ZoneOffset.UTC),
+                    LocalDateTime.ofEpochSecond(seconds[slot], (int) packedNanos, ZoneOffset.UTC));
+            break;
+        default:
+            task = new Todo(description);
+            break;
+        }
+        if (done.get(slot)) {
+            task.markDone();
+        }
+        task.assignId(ids[slot]);
+        return task;
+    }
+}
@@ -0,0 +1,93 @@
+package shonks.task;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Sorted indexes from dates to the ids of the tasks on them: deadlines by their due date,
+ * and events by the dates they start and end on.
+ * <p>
+ * Each map is a {@link TreeMap} of id buckets, so a query walks only the dates in its range:
+ * O(log n) to find the first date plus the size of the result.
+ */
+class DateIndex implements TaskIndex {
+    private final NavigableMap<LocalDate, Set<Long>> deadlinesByDate = new TreeMap<>();
+    private final NavigableMap<LocalDate, Set<Long>> eventsByStart = new TreeMap<>();
+    private final NavigableMap<LocalDate, Set<Long>> eventsByEnd = new TreeMap<>();
+
+    @Override
+    public void added(Task task) {
+        if (task instanceof Deadline) {
+            put(deadlinesByDate, ((Deadline) task).getBy(), task.getId());
+        } else if (task instanceof Event) {
+            put(eventsByStart, ((Event) task).getFrom().toLocalDate(), task.getId());
+            put(eventsByEnd, ((Event) task).getTo().toLocalDate(), task.getId());
+        }
+    }
+
+    @Override
+    public void removed(Task task) {
+        if (task instanceof Deadline) {
+            remove(deadlinesByDate, ((Deadline) task).getBy(), task.getId());
+        } else if (task instanceof Event) {
+            remove(eventsByStart, ((Event) task).getFrom().toLocalDate(), task.getId());
+            remove(eventsByEnd, ((Event) task).getTo().toLocalDate(), task.getId());
+        }
+    }
+
+    @Override
+    public void cleared() {
+        deadlinesByDate.clear();
+        eventsByStart.clear();
+        eventsByEnd.clear();
+    }
+
+    /**
+     * Returns the ids of the deadlines due on the given date, in no particular order.
+     */
+    List<Long> deadlinesOn(LocalDate date) {
+        return new ArrayList<>(deadlinesByDate.getOrDefault(date, Set.of()));
+    }
+
+    /**
+     * Returns the ids of the deadlines due strictly before the given date, in no particular order.
+     */
+    List<Long> deadlinesBefore(LocalDate date) {
+        return collect(deadlinesByDate.headMap(date, false), new HashSet<>());
+    }
+
+    /**
+     * Returns the ids of the deadlines due and the events starting or ending within the given
+     * dates (both inclusive), in no particular order.
+     */
+    List<Long> datedBetween(LocalDate from, LocalDate to) {
+        Set<Long> ids = new HashSet<>();
+        collect(deadlinesByDate.subMap(from, true, to, true), ids);
+        collect(eventsByStart.subMap(from, true, to, true), ids);
+        return collect(eventsByEnd.subMap(from, true, to, true), ids);
+    }
+
+    private static List<Long> collect(Map<LocalDate, Set<Long>> buckets, Set<Long> ids) {
+        for (Set<Long> bucket : buckets.values()) {
+            ids.addAll(bucket);
+        }
+        return new ArrayList<>(ids);
+    }
+
+    private static void put(NavigableMap<LocalDate, Set<Long>> map, LocalDate date, long id) {
+        map.computeIfAbsent(date, d -> new HashSet<>()).add(id);
+    }
+
+    private static void remove(NavigableMap<LocalDate, Set<Long>> map, LocalDate date, long id) {
+        Set<Long> bucket = map.get(date);
+        if (bucket != null && bucket.remove(id) && bucket.isEmpty()) {
+            map.remove(date);
+        }
+    }
+}
@@ -19,6 +19,10 @@ public class Deadline extends Task {
         this.by = by;
     }
 
+    public LocalDate getBy() {
+        return by;
+    }
+
     @Override
     protected String getTypeIcon() {
         return "D";
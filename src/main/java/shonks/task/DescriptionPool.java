@@ -0,0 +1,122 @@
+package shonks.task;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Optional, bounded pool that lets tasks with identical descriptions share one String.
+ * <p>
+ * Lists often repeat the same text ("standup", "submit timesheet") thousands of times, and
+ * every decoded or typed-in copy would otherwise be a separate String. Save-file codecs and
+ * the add handlers pass descriptions through {@link #intern}, which returns the pooled copy
+ * once a pool has been enabled and the description unchanged while it is not. The pool keeps
+ * at most a fixed number of distinct descriptions and forgets the least recently used one
+ * first, so one-off descriptions cannot make it grow without bound.
+ * <p>
+ * Hits and an estimate of the heap they saved are counted, and {@code stats} shows them.
+ */
+public class DescriptionPool {
+    private static final int STRING_HEADER_BYTES = 24;
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    private static volatile DescriptionPool shared;
+
+    private final LinkedHashMap<String, String> descriptions;
+    private long lookups;
+    private long hits;
+    private long bytesSaved;
+
+    /**
+     * Creates a pool.
+     *
+     * @param capacity Maximum number of distinct descriptions kept.
+     */
+    public DescriptionPool(int capacity) {
+        assert capacity > 0 : "Pool capacity should be positive";
+        this.descriptions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Turns on sharing of descriptions through a new pool, replacing any previous one.
+     *
+     * @param capacity Maximum number of distinct descriptions kept.
+     */
+    public static void enable(int capacity) {
+        shared = new DescriptionPool(capacity);
+    }
+
+    public static void disable() {
+        shared = null;
+    }
+
+    /**
+     * Returns the pool in use, or null if descriptions are not being shared.
+     */
+    public static DescriptionPool shared() {
+        return shared;
+    }
+
+    /**
+     * Returns the pooled copy of a description, or the description itself if no pool is
+     * enabled.
+     *
+     * @param description Description of a task about to be created.
+     * @return An equal description, possibly shared with other tasks.
+     */
+    public static String intern(String description) {
+        DescriptionPool pool = shared;
+        return pool == null ? description : pool.share(description);
+    }
+
+    /**
+     * Returns the pooled copy of a description, adding it to the pool if it is new.
+     * Pools are used by the loader and by commands on different threads, hence the lock.
+     *
+     * @param description Description to share.
+     * @return The pooled copy.
+     */
+    public synchronized String share(String description) {
+        lookups++;
+        String pooled = descriptions.putIfAbsent(description, description);
+        if (pooled == null) {
+            return description;
+        }
+        hits++;
+        bytesSaved += footprint(description);
+        return pooled;
+    }
+
+    public synchronized long getLookups() {
+        return lookups;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns an estimate of the heap no longer held by duplicate descriptions, assuming
+     * compact strings and 8-byte object alignment.
+     */
+    public synchronized long getBytesSaved() {
+        return bytesSaved;
+    }
+
+    public synchronized int size() {
+        return descriptions.size();
+    }
+
+    private static long footprint(String description) {
+        boolean isLatin1 = true;
+        for (int i = 0; i < description.length() && isLatin1; i++) {
+            isLatin1 = description.charAt(i) < 256;
+        }
+        long payload = isLatin1 ? description.length() : 2L * description.length();
+        return STRING_HEADER_BYTES + ((ARRAY_HEADER_BYTES + payload + 7) & ~7L);
+    }
+}
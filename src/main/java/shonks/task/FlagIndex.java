@@ -0,0 +1,143 @@
+package shonks.task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Bitsets of which tasks are live, done, and of each type, for filtered listing.
+ * <p>
+ * Bit {@code id - base} stands for the task with that stable id, so bits never move when
+ * tasks are removed, and ids growing along the list keeps bit order equal to list order. A
+ * filter ANDs the status set with the OR of the type sets one 64-bit word at a time, and the
+ * running bit count of the live set turns each match back into its list position. Ids of
+ * removed tasks leave holes, so the owner rebuilds the index once it is mostly holes.
+ */
+class FlagIndex implements TaskIndex {
+    private static final int LIVE = 0;
+    private static final int DONE = 1;
+    private static final int TODO = 2;
+    private static final int DEADLINE = 3;
+    private static final int EVENT = 4;
+    private static final int MIN_SPAN_TO_REBUILD = 4096;
+
+    private long[][] sets = new long[5][1];
+    private long base;
+    private long span;
+    private int liveCount;
+
+    @Override
+    public void added(Task task) {
+        if (liveCount == 0) {
+            cleared();
+            base = task.getId();
+        }
+        long bit = task.getId() - base;
+        assert bit >= span : "Task ids should grow along the list";
+        span = bit + 1;
+        int word = (int) (bit >>> 6);
+        if (word >= sets[LIVE].length) {
+            for (int set = 0; set < sets.length; set++) {
+                sets[set] = Arrays.copyOf(sets[set], Math.max(word + 1, sets[set].length * 2));
+            }
+        }
+        long mask = 1L << bit;
+        sets[LIVE][word] |= mask;
+        if (task.isDone()) {
+            sets[DONE][word] |= mask;
+        }
+        if (task instanceof Todo) {
+            sets[TODO][word] |= mask;
+        } else if (task instanceof Deadline) {
+            sets[DEADLINE][word] |= mask;
+        } else if (task instanceof Event) {
+            sets[EVENT][word] |= mask;
+        }
+        liveCount++;
+    }
+
+    @Override
+    public void removed(Task task) {
+        long bit = task.getId() - base;
+        int word = (int) (bit >>> 6);
+        for (long[] set : sets) {
+            set[word] &= ~(1L << bit);
+        }
+        liveCount--;
+    }
+
+    @Override
+    public void doneChanged(Task task) {
+        long bit = task.getId() - base;
+        int word = (int) (bit >>> 6);
+        if (task.isDone()) {
+            sets[DONE][word] |= 1L << bit;
+        } else {
+            sets[DONE][word] &= ~(1L << bit);
+        }
+    }
+
+    @Override
+    public void cleared() {
+        sets = new long[5][1];
+        base = 0;
+        span = 0;
+        liveCount = 0;
+    }
+
+    /**
+     * Returns whether most bits belong to removed tasks, so a rebuild would shrink the sets.
+     */
+    boolean isSparse() {
+        return span > MIN_SPAN_TO_REBUILD && span > 2L * liveCount;
+    }
+
+    /**
+     * Returns the 0-based list positions of the tasks matching the filters, in list order.
+     * No filters match every task.
+     */
+    List<Integer> positions(Set<TaskFilter> filters) {
+        long[] live = sets[LIVE];
+        long[] done = sets[DONE];
+        boolean isPendingOnly = filters.contains(TaskFilter.PENDING) && !filters.contains(TaskFilter.DONE);
+        boolean isDoneOnly = filters.contains(TaskFilter.DONE) && !filters.contains(TaskFilter.PENDING);
+        boolean hasType = filters.contains(TaskFilter.TODO) || filters.contains(TaskFilter.DEADLINE)
+                || filters.contains(TaskFilter.EVENT);
+        long[] todos = filters.contains(TaskFilter.TODO) ? sets[TODO] : null;
+        long[] deadlines = filters.contains(TaskFilter.DEADLINE) ? sets[DEADLINE] : null;
+        long[] events = filters.contains(TaskFilter.EVENT) ? sets[EVENT] : null;
+
+        List<Integer> positions = new ArrayList<>();
+        int before = 0;
+        int words = (int) ((span + 63) >>> 6);
+        for (int word = 0; word < words; word++) {
+            long matches = live[word];
+            if (isPendingOnly) {
+                matches &= ~done[word];
+            } else if (isDoneOnly) {
+                matches &= done[word];
+            }
+            if (hasType) {
+                long types = 0;
+                if (todos != null) {
+                    types |= todos[word];
+                }
+                if (deadlines != null) {
+                    types |= deadlines[word];
+                }
+                if (events != null) {
+                    types |= events[word];
+                }
+                matches &= types;
+            }
+            while (matches != 0) {
+                long lowest = matches & -matches;
+                positions.add(before + Long.bitCount(live[word] & (lowest - 1)));
+                matches ^= lowest;
+            }
+            before += Long.bitCount(live[word]);
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,205 @@
+package shonks.task;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Interval tree over the time ranges of events, answering which events overlap a range.
+ * <p>
+ * The tree is a treap ordered by start time (then id) in which every node also holds the
+ * latest end time in its subtree. A query skips every subtree whose latest end is not after
+ * the range's start, and everything right of a node that starts at or after the range's end.
+ * Every node it visits is on the path to the range's end or has an overlapping event below
+ * it, so k overlapping events cost O(log n) plus at most O(log n) each, and close to
+ * O(log n + k) when overlapping events sit together in the tree. Random priorities keep the
+ * expected depth logarithmic whatever order events are added in.
+ * <p>
+ * Ranges are half-open: an event ending at 16:00 does not overlap one starting at 16:00.
+ */
+class IntervalIndex implements TaskIndex {
+    private final Random priorities = new Random();
+    private Node root;
+
+    @Override
+    public void added(Task task) {
+        if (task instanceof Event) {
+            Event event = (Event) task;
+            root = insert(root, new Node(event.getFrom(), event.getTo(), task.getId(), priorities.nextInt()));
+        }
+    }
+
+    /**
+     * Fills an empty index with the events among the given tasks in O(n log n), by sorting
+     * them and building a balanced tree instead of inserting them one by one.
+     */
+    void build(List<Task> tasks) {
+        assert root == null : "Index should be empty";
+        List<Node> nodes = new ArrayList<>();
+        for (Task task : tasks) {
+            if (task instanceof Event) {
+                Event event = (Event) task;
+                nodes.add(new Node(event.getFrom(), event.getTo(), task.getId(), 0));
+            }
+        }
+        nodes.sort((a, b) -> compare(a.start, a.id, b));
+        root = balanced(nodes, 0, nodes.size() - 1, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Links the sorted nodes into a balanced subtree whose priorities fall with depth, which
+     * keeps the heap order that later inserts and deletes rely on.
+     */
+    private static Node balanced(List<Node> nodes, int low, int high, int priority) {
+        if (low > high) {
+            return null;
+        }
+        int mid = (low + high) >>> 1;
+        Node node = nodes.get(mid);
+        node.priority = priority;
+        node.left = balanced(nodes, low, mid - 1, priority - 1);
+        node.right = balanced(nodes, mid + 1, high, priority - 1);
+        node.update();
+        return node;
+    }
+
+    @Override
+    public void removed(Task task) {
+        if (task instanceof Event) {
+            root = delete(root, ((Event) task).getFrom(), task.getId());
+        }
+    }
+
+    @Override
+    public void cleared() {
+        root = null;
+    }
+
+    /**
+     * Returns the ids of the events overlapping the range {@code [from, to)}, ordered by start.
+     */
+    List<Long> overlapping(LocalDateTime from, LocalDateTime to) {
+        List<Long> ids = new ArrayList<>();
+        collect(root, from, to, ids);
+        return ids;
+    }
+
+    private static void collect(Node node, LocalDateTime from, LocalDateTime to, List<Long> ids) {
+        if (node == null || !node.maxEnd.isAfter(from)) {
+            return;    // Everything below ends by the time the range starts.
+        }
+        collect(node.left, from, to, ids);
+        if (!node.start.isBefore(to)) {
+            return;    // This node and everything right of it start once the range is over.
+        }
+        if (node.end.isAfter(from)) {
+            ids.add(node.id);
+        }
+        collect(node.right, from, to, ids);
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added.start, added.id, node) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        node.update();
+        return node;
+    }
+
+    private static Node delete(Node node, LocalDateTime start, long id) {
+        if (node == null) {
+            return null;
+        }
+        int order = compare(start, id, node);
+        if (order < 0) {
+            node.left = delete(node.left, start, id);
+        } else if (order > 0) {
+            node.right = delete(node.right, start, id);
+        } else {
+            return merge(node.left, node.right);
+        }
+        node.update();
+        return node;
+    }
+
+    /**
+     * Joins two treaps whose keys are all smaller on the left.
+     */
+    private static Node merge(Node left, Node right) {
+        if (left == null || right == null) {
+            return left == null ? right : left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private static int compare(LocalDateTime start, long id, Node node) {
+        int order = start.compareTo(node.start);
+        return order != 0 ? order : Long.compare(id, node.id);
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        node.update();
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        node.update();
+        return right;
+    }
+
+    private static class Node {
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final long id;
+        private int priority;
+        private LocalDateTime maxEnd;
+        private Node left;
+        private Node right;
+
+        private Node(LocalDateTime start, LocalDateTime end, long id, int priority) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+            this.priority = priority;
+            this.maxEnd = end;
+        }
+
+        /**
+         * Recomputes the latest end in this subtree from the node and its children.
+         */
+        private void update() {
+            maxEnd = end;
+            if (left != null && left.maxEnd.isAfter(maxEnd)) {
+                maxEnd = left.maxEnd;
+            }
+            if (right != null && right.maxEnd.isAfter(maxEnd)) {
+                maxEnd = right.maxEnd;
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package shonks.task;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import shonks.ShonksException;
+
+/**
+ * Store that keeps loaded tasks as raw save-file lines and decodes a task only when it is
+ * first accessed.
+ * <p>
+ * Decoded tasks are kept in a bounded LRU cache. When a cached task is evicted, its done flag
+ * is written back into the raw line, which is the only part of a task that can change.
+ * Tasks added after loading, and the rare lines whose done flag is not at a fixed offset,
+ * are kept as objects for good.
+ * <p>
+ * Removed lines stay in their slot as tombstones, tracked by {@link LiveSlots}, until more
+ * than half of the slots are dead and the arrays are compacted.
+ */
+class LazyTaskStore implements TaskStore {
+    private static final int DONE_OFFSET = 4;      // "T | 0 | ..."
+    private static final int NO_RAW_LINE = -1;
+
+    private final byte[] data;
+    private final Map<Long, Task> pinned = new HashMap<>();
+    private final LinkedHashMap<Long, Task> cache;
+    private int[] starts;
+    private int[] lengths;
+    private long[] ids;
+    private int slotCount;
+    private LiveSlots live;
+
+    /**
+     * Creates a store over the given raw lines.
+     *
+     * @param data Bytes of the save file.
+     * @param starts Offset of each task line in {@code data}.
+     * @param lengths Length of each task line, excluding the line break.
+     * @param ids Stable id of each task, strictly increasing.
+     * @param count Number of task lines.
+     * @param cacheSize Maximum number of decoded tasks kept in memory.
+     */
+    LazyTaskStore(byte[] data, int[] starts, int[] lengths, long[] ids, int count, int cacheSize) {
+        assert cacheSize > 0 : "Cache size should be positive";
+        this.data = data;
+        this.starts = starts;
+        this.lengths = lengths;
+        this.ids = ids;
+        this.slotCount = count;
+        this.live = new LiveSlots(count);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Task> eldest) {
+                if (size() <= cacheSize) {
+                    return false;
+                }
+                writeBackDone(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return live.liveCount();
+    }
+
+    @Override
+    public Task get(int index) {
+        return getSlot(live.slotOf(index));
+    }
+
+    private Task getSlot(int slot) {
+        long id = ids[slot];
+        Task task = pinned.get(id);
+        if (task == null) {
+            task = cache.get(id);
+        }
+        if (task != null) {
+            return task;
+        }
+
+        task = decode(data, starts[slot], lengths[slot], id);
+        if (hasDoneFlagAtFixedOffset(slot)) {
+            cache.put(id, task);
+        } else {
+            pinned.put(id, task);
+        }
+        return task;
+    }
+
+    @Override
+    public long idAt(int index) {
+        return ids[live.slotOf(index)];
+    }
+
+    @Override
+    public int indexOfId(long id) {
+        int slot = Arrays.binarySearch(ids, 0, slotCount, id);
+        return slot >= 0 && live.isLive(slot) ? live.positionOf(slot) : -1;
+    }
+
+    @Override
+    public void add(Task task) {
+        assert slotCount == 0 || task.getId() > ids[slotCount - 1] : "Task ids should grow along the list";
+        if (slotCount == ids.length) {
+            int capacity = Math.max(16, slotCount + (slotCount >> 1));
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+        }
+        starts[slotCount] = NO_RAW_LINE;
+        lengths[slotCount] = 0;
+        ids[slotCount] = task.getId();
+        pinned.put(task.getId(), task);
+        slotCount++;
+        live.append();
+    }
+
+    @Override
+    public Task remove(int index) {
+        int slot = live.slotOf(index);
+        Task task = getSlot(slot);
+        long id = ids[slot];
+        live.kill(slot);
+        cache.remove(id);
+        pinned.remove(id);
+        if (live.deadCount() > live.liveCount()) {
+            compact();
+        }
+        return task;
+    }
+
+    private void compact() {
+        int kept = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (live.isLive(slot)) {
+                starts[kept] = starts[slot];
+                lengths[kept] = lengths[slot];
+                ids[kept] = ids[slot];
+                kept++;
+            }
+        }
+        slotCount = kept;
+        live = new LiveSlots(kept);
+    }
+
+    @Override
+    public void clear() {
+        slotCount = 0;
+        live = new LiveSlots(0);
+        cache.clear();
+        pinned.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Tombstones are compacted away first, which costs no more than the copy itself, and
+     * done flags of cached tasks are written back, so the copy only shares the raw bytes
+     * and the pinned task objects with the live store. Raw lines are decoded by whichever
+     * thread reads the copy, without touching the cache.
+     */
+    @Override
+    public List<Task> snapshot() {
+        for (Map.Entry<Long, Task> entry : cache.entrySet()) {
+            writeBackDone(entry.getKey(), entry.getValue());
+        }
+        if (live.deadCount() > 0) {
+            compact();
+        }
+        return new Snapshot(data, Arrays.copyOf(starts, slotCount), Arrays.copyOf(lengths, slotCount),
+                Arrays.copyOf(ids, slotCount), new HashMap<>(pinned));
+    }
+
+    private void writeBackDone(long id, Task task) {
+        int index = Arrays.binarySearch(ids, 0, slotCount, id);
+        if (index >= 0 && starts[index] != NO_RAW_LINE) {
+            data[starts[index] + DONE_OFFSET] = (byte) (task.isDone() ? '1' : '0');
+        }
+    }
+
+    private boolean hasDoneFlagAtFixedOffset(int slot) {
+        int start = starts[slot];
+        if (lengths[slot] < 8) {
+            return false;
+        }
+        byte done = data[start + DONE_OFFSET];
+        return data[start + 1] == ' ' && data[start + 2] == '|' && data[start + 3] == ' '
+                && (done == '0' || done == '1')
+                && data[start + 5] == ' ' && data[start + 6] == '|' && data[start + 7] == ' ';
+    }
+
+    private static Task decode(byte[] data, int start, int length, long id) {
+        String line = new String(data, start, length, StandardCharsets.UTF_8);
+        Task task;
+        try {
+            task = Task.fromStorageString(line);
+        } catch (ShonksException | RuntimeException e) {
+            // The loader checked every line, so only a bug gets here.
+            throw new IllegalStateException("Corrupted save file line: " + line, e);
+        }
+        task.assignId(id);
+        return task;
+    }
+
+    /**
+     * Read-only copy of the list that decodes raw lines on demand.
+     */
+    private static class Snapshot extends AbstractList<Task> {
+        private final byte[] data;
+        private final int[] starts;
+        private final int[] lengths;
+        private final long[] ids;
+        private final Map<Long, Task> pinned;
+
+        private Snapshot(byte[] data, int[] starts, int[] lengths, long[] ids, Map<Long, Task> pinned) {
+            this.data = data;
+            this.starts = starts;
+            this.lengths = lengths;
+            this.ids = ids;
+            this.pinned = pinned;
+        }
+
+        @Override
+        public Task get(int index) {
+            Task task = pinned.get(ids[index]);
+            return task != null ? task : decode(data, starts[index], lengths[index], ids[index]);
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package shonks.task;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Maps list positions to storage slots when removed tasks leave tombstones behind.
+ * <p>
+ * A store appends every task to a new slot and never shifts slots on removal; it only marks
+ * the slot dead here. A Fenwick tree over the live flags answers "which slot holds the n-th
+ * live task" and "how many live tasks come before this slot" in O(log n), so removing from
+ * the middle of the list no longer moves every later task. While no slot is dead, positions
+ * and slots are the same and lookups skip the tree.
+ */
+class LiveSlots {
+    private int[] tree;         // 1-based Fenwick tree of live flags
+    private final BitSet live = new BitSet();
+    private int slotCount;
+    private int liveCount;
+
+    /**
+     * Creates the index for {@code count} slots that are all live.
+     */
+    LiveSlots(int count) {
+        tree = new int[Math.max(16, count + 1)];
+        for (int i = 1; i <= count; i++) {
+            tree[i] = Integer.lowestOneBit(i);    // every slot in the node's range is live
+        }
+        live.set(0, count);
+        slotCount = count;
+        liveCount = count;
+    }
+
+    int slotCount() {
+        return slotCount;
+    }
+
+    int liveCount() {
+        return liveCount;
+    }
+
+    int deadCount() {
+        return slotCount - liveCount;
+    }
+
+    boolean isLive(int slot) {
+        return live.get(slot);
+    }
+
+    /**
+     * Adds a live slot after the last one and returns it.
+     */
+    int append() {
+        int node = slotCount + 1;
+        if (node == tree.length) {
+            tree = Arrays.copyOf(tree, node + (node >> 1));
+        }
+        // The new node covers itself plus the tail of the slots before it.
+        tree[node] = 1 + prefix(node - 1) - prefix(node - Integer.lowestOneBit(node));
+        live.set(slotCount);
+        liveCount++;
+        return slotCount++;
+    }
+
+    /**
+     * Marks a live slot dead.
+     */
+    void kill(int slot) {
+        assert live.get(slot) : "Slot should be live";
+        live.clear(slot);
+        liveCount--;
+        for (int node = slot + 1; node <= slotCount; node += Integer.lowestOneBit(node)) {
+            tree[node]--;
+        }
+    }
+
+    /**
+     * Returns the slot of the live task at the given 0-based position.
+     */
+    int slotOf(int position) {
+        assert position >= 0 && position < liveCount : "Position out of bounds";
+        if (liveCount == slotCount) {
+            return position;
+        }
+        // Walk down the tree for the smallest slot with position + 1 live slots up to it.
+        int node = 0;
+        int remaining = position + 1;
+        for (int step = Integer.highestOneBit(slotCount); step > 0; step >>= 1) {
+            int next = node + step;
+            if (next <= slotCount && tree[next] < remaining) {
+                node = next;
+                remaining -= tree[next];
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Returns the number of live slots before the given slot, i.e. its position if it is live.
+     */
+    int positionOf(int slot) {
+        return liveCount == slotCount ? slot : prefix(slot);
+    }
+
+    private int prefix(int count) {
+        int sum = 0;
+        for (int node = count; node > 0; node -= Integer.lowestOneBit(node)) {
+            sum += tree[node];
+        }
+        return sum;
+    }
+}
@@ -15,6 +15,8 @@ public class Task {
 
     protected final String description;
     protected boolean isDone;
+    private long id;
+    private int modCount;
 
     /**
      * Returns whether this task is marked as done.
@@ -30,12 +32,68 @@ public class Task {
         this.isDone = false;
     }
 
-    public void markDone() {
-        this.isDone = true;
+    public String getDescription() {
+        return description;
     }
 
-    public void unmarkDone() {
-        this.isDone = false;
+    /**
+     * Returns the stable id of this task, or 0 if it has not been added to a task list yet.
+     * <p>
+     * Unlike the 1-based list number shown to the user, the id does not change when
+     * earlier tasks are deleted, so storage records can refer to it safely.
+     *
+     * @return The stable task id.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Assigns the stable id of this task.
+     * Used by {@link TaskList} and by storage when replaying saved records.
+     *
+     * @param id Positive task id.
+     */
+    public void assignId(long id) {
+        assert id > 0 : "Task id should be positive";
+        this.id = id;
+    }
+
+    /**
+     * Marks this task as done.
+     *
+     * @return {@code true} if the task changed, {@code false} if it was already done.
+     */
+    public boolean markDone() {
+        return setDone(true);
+    }
+
+    /**
+     * Marks this task as not done.
+     *
+     * @return {@code true} if the task changed, {@code false} if it was already pending.
+     */
+    public boolean unmarkDone() {
+        return setDone(false);
+    }
+
+    private boolean setDone(boolean isDone) {
+        if (this.isDone == isDone) {
+            return false;
+        }
+        this.isDone = isDone;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Returns how many times this task has actually changed since it was created.
+     * Calls that leave the task as it was do not count.
+     *
+     * @return The modification count.
+     */
+    public int getModCount() {
+        return modCount;
     }
 
     protected String getStatusIcon() {
@@ -127,7 +185,7 @@ public class Task {
 
         String type = parts[0];
         boolean done = parts[1].equals("1");
-        String desc = parts[2];
+        String desc = DescriptionPool.intern(parts[2]);
 
         Task task;
         if (type.equals("T")) {
@@ -0,0 +1,71 @@
+package shonks.task;
+
+/**
+ * Running counts of the tasks in a {@link TaskList}: in total, done, and per type.
+ * Every add, removal and mark costs O(1), so reading the counts never scans the list.
+ */
+class TaskCounts implements TaskIndex {
+    private int total;
+    private int done;
+    private int todos;
+    private int deadlines;
+    private int events;
+
+    @Override
+    public void added(Task task) {
+        count(task, 1);
+    }
+
+    @Override
+    public void removed(Task task) {
+        count(task, -1);
+    }
+
+    private void count(Task task, int delta) {
+        total += delta;
+        if (task.isDone()) {
+            done += delta;
+        }
+        if (task instanceof Todo) {
+            todos += delta;
+        } else if (task instanceof Deadline) {
+            deadlines += delta;
+        } else if (task instanceof Event) {
+            events += delta;
+        }
+    }
+
+    @Override
+    public void doneChanged(Task task) {
+        done += task.isDone() ? 1 : -1;
+    }
+
+    @Override
+    public void cleared() {
+        total = 0;
+        done = 0;
+        todos = 0;
+        deadlines = 0;
+        events = 0;
+    }
+
+    int total() {
+        return total;
+    }
+
+    int done() {
+        return done;
+    }
+
+    int todos() {
+        return todos;
+    }
+
+    int deadlines() {
+        return deadlines;
+    }
+
+    int events() {
+        return events;
+    }
+}
@@ -0,0 +1,16 @@
+package shonks.task;
+
+/**
+ * Attribute a task list can be filtered by. Filters on the same attribute (status or type)
+ * match a task if any of them does; filters on different attributes must all match.
+ */
+public enum TaskFilter {
+    PENDING, DONE, TODO, DEADLINE, EVENT;
+
+    /**
+     * Returns whether this filter is on the done status rather than on the task type.
+     */
+    public boolean isStatus() {
+        return this == PENDING || this == DONE;
+    }
+}
@@ -0,0 +1,22 @@
+package shonks.task;
+
+/**
+ * Secondary index over the tasks of a {@link TaskList}, kept up to date by the list.
+ * <p>
+ * The list calls {@link #added} after a task is stored and {@link #removed} after it is gone,
+ * so an index may check whether an id is still live while handling a removal.
+ */
+interface TaskIndex {
+
+    void added(Task task);
+
+    void removed(Task task);
+
+    void cleared();
+
+    /**
+     * Called after a task was marked or unmarked through the list.
+     */
+    default void doneChanged(Task task) {
+    }
+}
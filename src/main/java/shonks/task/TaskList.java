@@ -1,5 +1,14 @@
 package shonks.task;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 public class TaskList {
     /**
@@ -9,40 +18,486 @@ public class TaskList {
      * clearing tasks. It is used as the in-memory representation of the user's
      * task list and supports extension features such as task archiving and
      * statistics generation.
+     * <p>
+     * Tasks are usually held as objects, but a list loaded with {@link #ofRawLines} keeps
+     * them as raw save-file lines and only decodes the tasks that are actually accessed, and
+     * one created with {@link #inColumns} packs them into primitive columns.
+     * <p>
+     * Every change made through this list bumps a modification counter and records the id of
+     * the task it touched, so storage can skip saves when nothing changed and find the tasks
+     * that did. Changes made directly on a {@link Task} are not tracked, and neither the
+     * indexes nor the counts see them. Bulk changes ({@link #addAll}, {@link #removeFrom})
+     * record one id range instead of one id per task.
+     * <p>
+     * Secondary indexes ({@link TaskIndex}) are built on first use and then kept up to date by
+     * every add and removal, so lists that never search pay nothing for them.
      */
-    private final ArrayList<Task> tasks;
+    private static final int MIN_CHANGES_TO_PRUNE = 1024;
+
+    private final TaskStore store;
+    private final Map<Long, Long> changedAt = new HashMap<>();     // task id -> modCount
+    private final List<long[]> changedRanges = new ArrayList<>();  // {first id, last id, modCount}
+    private long nextId = 1;
+    private long modCount;
+    private volatile long persistedModCount;
+    private int pruneThreshold = MIN_CHANGES_TO_PRUNE;
+    private final List<TaskIndex> indexes = new ArrayList<>();
+    private WordIndex wordIndex;
+    private DateIndex dateIndex;
+    private IntervalIndex intervalIndex;
+    private TaskCounts counts;
+    private FlagIndex flagIndex;
 
     public TaskList(ArrayList<Task> tasks) {
         assert tasks != null : "Initial task list should not be null";
-        this.tasks = tasks;
+        this.store = new ArrayTaskStore(tasks);
+        for (Task task : tasks) {
+            assignIdIfMissing(task);
+        }
     }
 
     public TaskList() {
-        this.tasks = new ArrayList<>();
+        this(new ArrayList<>());
+    }
+
+    private TaskList(TaskStore store, long nextId) {
+        this.store = store;
+        this.nextId = nextId;
+    }
+
+    /**
+     * Creates a task list over raw lines of a text save file, decoding each task on first access.
+     * At most {@code cacheSize} decoded tasks are kept in memory at a time.
+     *
+     * @param data Bytes of the save file.
+     * @param starts Offset of each task line in {@code data}.
+     * @param lengths Length of each task line, excluding the line break.
+     * @param ids Stable id of each task, strictly increasing.
+     * @param count Number of task lines.
+     * @param cacheSize Maximum number of decoded tasks kept in memory.
+     * @return A lazily decoded task list.
+     */
+    public static TaskList ofRawLines(byte[] data, int[] starts, int[] lengths, long[] ids, int count,
+                                      int cacheSize) {
+        long nextId = count == 0 ? 1 : ids[count - 1] + 1;
+        return new TaskList(new LazyTaskStore(data, starts, lengths, ids, count, cacheSize), nextId);
+    }
+
+    /**
+     * Creates a task list that holds the given tasks in compact primitive columns rather
+     * than as objects, for lists of millions of tasks. Task objects are decoded on access
+     * and at most {@code cacheSize} of them are kept in memory at a time.
+     *
+     * @param tasks Tasks to hold, in order.
+     * @param cacheSize Maximum number of decoded tasks kept in memory.
+     * @return A column-backed task list.
+     */
+    public static TaskList inColumns(List<Task> tasks, int cacheSize) {
+        TaskList list = new TaskList(new ColumnTaskStore(cacheSize, tasks.size()), 1);
+        for (Task task : tasks) {
+            list.assignIdIfMissing(task);
+            list.store.add(task);
+        }
+        return list;
     }
 
     public int size() {
-        return tasks.size();
+        return store.size();
     }
 
     public Task get(int index) {
-        assert index >= 0 && index < tasks.size() : "Index out of bounds";
-        return tasks.get(index);
+        assert index >= 0 && index < store.size() : "Index out of bounds";
+        return store.get(index);
     }
 
     public void add(Task task) {
         assert task != null : "Task to add should not be null";
-        tasks.add(task);
+        assignIdIfMissing(task);
+        store.add(task);
+        recordChange(task.getId());
+        notifyAdded(task);
+    }
+
+    /**
+     * Appends a batch of tasks, e.g. from a bulk import. Their ids are recorded as one changed
+     * range, so the bookkeeping does not grow with the batch size.
+     *
+     * @param batch Tasks to append, in order.
+     */
+    public void addAll(List<Task> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (Task task : batch) {
+            assert task != null : "Task to add should not be null";
+            assignIdIfMissing(task);
+            store.add(task);
+            notifyAdded(task);
+        }
+        recordRange(batch.get(0).getId(), batch.get(batch.size() - 1).getId(), batch.size());
+    }
+
+    /**
+     * Removes every task from the given position to the end, e.g. to undo a bulk import.
+     *
+     * @param fromIndex 0-based position of the first task to remove.
+     */
+    public void removeFrom(int fromIndex) {
+        assert fromIndex >= 0 && fromIndex <= store.size() : "Index out of bounds";
+        if (fromIndex == store.size()) {
+            return;
+        }
+        int count = store.size() - fromIndex;
+        long firstId = store.idAt(fromIndex);
+        long lastId = store.idAt(store.size() - 1);
+        for (int i = store.size() - 1; i >= fromIndex; i--) {
+            notifyRemoved(store.remove(i));
+        }
+        recordRange(firstId, lastId, count);
     }
 
     public Task remove(int index) {
-        assert index >= 0 && index < tasks.size() : "Index out of bounds";
-        return tasks.remove(index);
+        assert index >= 0 && index < store.size() : "Index out of bounds";
+        recordChange(store.idAt(index));
+        Task removed = store.remove(index);
+        notifyRemoved(removed);
+        return removed;
+    }
+
+    private void notifyAdded(Task task) {
+        for (TaskIndex index : indexes) {
+            index.added(task);
+        }
+    }
+
+    private void notifyRemoved(Task task) {
+        for (TaskIndex index : indexes) {
+            index.removed(task);
+        }
+    }
+
+    private void notifyDoneChanged(Task task) {
+        for (TaskIndex index : indexes) {
+            index.doneChanged(task);
+        }
+    }
+
+    /**
+     * Returns the number of tasks marked as done.
+     * <p>
+     * The first call to this or another count method counts every task; after that the
+     * counts are kept up to date in O(1) per change, so reading them is constant-time. Only
+     * changes made through this list are seen, not {@link Task#markDone()} called directly.
+     *
+     * @return The number of done tasks.
+     */
+    public int countDone() {
+        return counts().done();
+    }
+
+    public int countTodos() {
+        return counts().todos();
+    }
+
+    public int countDeadlines() {
+        return counts().deadlines();
+    }
+
+    public int countEvents() {
+        return counts().events();
+    }
+
+    private TaskCounts counts() {
+        if (counts == null) {
+            counts = new TaskCounts();
+            for (int i = 0; i < store.size(); i++) {
+                counts.added(store.get(i));
+            }
+            indexes.add(counts);
+        }
+        assert counts.total() == store.size() : "Task counts should follow the list";
+        return counts;
+    }
+
+    /**
+     * Returns the tasks whose description contains the keyword (see {@link Task#contains}),
+     * in list order.
+     * <p>
+     * The first call builds a word index over all tasks; later calls only check the tasks
+     * with a word that contains the keyword's longest word. Keywords too common to narrow the
+     * list down to a quarter of it fall back to one pass over the list.
+     *
+     * @param keyword Keyword to search for.
+     * @return The matching tasks.
+     */
+    public List<Task> find(String keyword) {
+        if (wordIndex == null) {
+            wordIndex = new WordIndex(id -> indexOfId(id) >= 0);
+            for (int i = 0; i < store.size(); i++) {
+                wordIndex.added(store.get(i));
+            }
+            indexes.add(wordIndex);
+        }
+
+        // Looking up most of the list by id costs more than one pass over it.
+        long[] candidates = wordIndex.candidates(keyword, Math.max(16, store.size() / 4));
+        List<Task> matches = new ArrayList<>();
+        if (candidates == null) {
+            for (int i = 0; i < store.size(); i++) {
+                if (store.get(i).contains(keyword)) {
+                    matches.add(store.get(i));
+                }
+            }
+            return matches;
+        }
+        for (long id : candidates) {
+            int index = indexOfId(id);
+            if (index >= 0 && store.get(index).contains(keyword)) {
+                matches.add(store.get(index));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Marks the task at the given position as done.
+     *
+     * @param index 0-based position.
+     * @return {@code true} if the task changed, {@code false} if it was already done.
+     */
+    public boolean markDone(int index) {
+        Task task = get(index);
+        boolean isChanged = task.markDone();
+        if (isChanged) {
+            recordChange(task.getId());
+            notifyDoneChanged(task);
+        }
+        return isChanged;
+    }
+
+    /**
+     * Marks the task at the given position as not done.
+     *
+     * @param index 0-based position.
+     * @return {@code true} if the task changed, {@code false} if it was already pending.
+     */
+    public boolean unmarkDone(int index) {
+        Task task = get(index);
+        boolean isChanged = task.unmarkDone();
+        if (isChanged) {
+            recordChange(task.getId());
+            notifyDoneChanged(task);
+        }
+        return isChanged;
     }
 
-    public ArrayList<Task> getInternalList() {
-        assert tasks != null : "Internal task list should not be null";
-        return tasks;
+    public long getModCount() {
+        return modCount;
+    }
+
+    /**
+     * Returns whether this list changed since it was loaded or last persisted.
+     */
+    public boolean isDirty() {
+        return modCount != persistedModCount;
+    }
+
+    /**
+     * Records that the list as of the given modification count is on disk.
+     * May be called from a background writer, as long as saves do not overlap.
+     *
+     * @param modCount Value of {@link #getModCount()} when the persisted copy was taken.
+     */
+    public void markPersisted(long modCount) {
+        if (modCount > persistedModCount) {
+            persistedModCount = modCount;
+        }
+    }
+
+    /**
+     * Returns the ids of the tasks that were added, changed or removed since the list was
+     * last persisted, in increasing order. Removed ids no longer resolve through
+     * {@link #indexOfId(long)}.
+     *
+     * @return Ids of changed tasks.
+     */
+    public Set<Long> changedSincePersist() {
+        long persisted = persistedModCount;
+        Set<Long> ids = new TreeSet<>();
+        for (Map.Entry<Long, Long> change : changedAt.entrySet()) {
+            if (change.getValue() > persisted) {
+                ids.add(change.getKey());
+            }
+        }
+        for (long[] range : changedRanges) {
+            if (range[2] > persisted) {
+                for (long id = range[0]; id <= range[1]; id++) {
+                    ids.add(id);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void recordChange(long id) {
+        modCount++;
+        changedAt.put(id, modCount);
+        if (changedAt.size() >= pruneThreshold) {
+            long persisted = persistedModCount;
+            changedAt.values().removeIf(changed -> changed <= persisted);
+            pruneThreshold = Math.max(MIN_CHANGES_TO_PRUNE, changedAt.size() * 2);
+        }
+    }
+
+    private void recordRange(long firstId, long lastId, int count) {
+        modCount += count;
+        long persisted = persistedModCount;
+        changedRanges.removeIf(range -> range[2] <= persisted);
+        changedRanges.add(new long[] {firstId, lastId, modCount});
+    }
+
+    /**
+     * Returns the position of the task with the given stable id.
+     * Ids grow along the list, so this is a binary search that decodes nothing.
+     *
+     * @param id Stable task id.
+     * @return The 0-based position, or -1 if no task has that id.
+     */
+    public int indexOfId(long id) {
+        return store.indexOfId(id);
+    }
+
+    /**
+     * Returns the positions of the deadlines due on the given date, in list order.
+     *
+     * @param date Due date.
+     * @return 0-based positions.
+     */
+    public List<Integer> dueOn(LocalDate date) {
+        return positionsOf(dateIndex().deadlinesOn(date));
+    }
+
+    /**
+     * Returns the positions of the deadlines due strictly before the given date, in list order.
+     *
+     * @param date First date that is not included.
+     * @return 0-based positions.
+     */
+    public List<Integer> dueBefore(LocalDate date) {
+        return positionsOf(dateIndex().deadlinesBefore(date));
+    }
+
+    /**
+     * Returns the positions of the deadlines due, and the events starting or ending, between
+     * the given dates (both inclusive), in list order.
+     *
+     * @param from First date of the range.
+     * @param to Last date of the range.
+     * @return 0-based positions.
+     */
+    public List<Integer> datedBetween(LocalDate from, LocalDate to) {
+        return positionsOf(dateIndex().datedBetween(from, to));
+    }
+
+    /**
+     * Returns the positions of the events overlapping the range {@code [from, to)}, in list
+     * order. An event that ends exactly when the range starts, or starts exactly when it ends,
+     * does not overlap it.
+     *
+     * @param from Start of the range.
+     * @param to End of the range.
+     * @return 0-based positions.
+     */
+    public List<Integer> overlapping(LocalDateTime from, LocalDateTime to) {
+        if (intervalIndex == null) {
+            intervalIndex = new IntervalIndex();
+            intervalIndex.build(asList());
+            indexes.add(intervalIndex);
+        }
+        return positionsOf(intervalIndex.overlapping(from, to));
+    }
+
+    /**
+     * Returns the positions of the tasks matching every given kind of filter, e.g. pending
+     * deadlines or events. Filters on the same attribute are alternatives: todos and events
+     * matches both. The filters are bitsets over the list kept up to date by every change,
+     * so this costs a few word operations per 64 tasks.
+     *
+     * @param filters Filters to apply; none matches every task.
+     * @return 0-based positions of the matching tasks, in list order.
+     */
+    public List<Integer> filter(Set<TaskFilter> filters) {
+        if (flagIndex != null && flagIndex.isSparse()) {
+            indexes.remove(flagIndex);
+            flagIndex = null;
+        }
+        if (flagIndex == null) {
+            flagIndex = new FlagIndex();
+            for (int i = 0; i < store.size(); i++) {
+                flagIndex.added(store.get(i));
+            }
+            indexes.add(flagIndex);
+        }
+        return flagIndex.positions(filters);
+    }
+
+    private DateIndex dateIndex() {
+        if (dateIndex == null) {
+            dateIndex = new DateIndex();
+            for (int i = 0; i < store.size(); i++) {
+                dateIndex.added(store.get(i));
+            }
+            indexes.add(dateIndex);
+        }
+        return dateIndex;
+    }
+
+    private List<Integer> positionsOf(List<Long> ids) {
+        // Ids grow along the list, so sorting them puts the positions in list order.
+        Collections.sort(ids);
+        List<Integer> positions = new ArrayList<>(ids.size());
+        for (long id : ids) {
+            positions.add(indexOfId(id));
+        }
+        return positions;
+    }
+
+    private void assignIdIfMissing(Task task) {
+        if (task.getId() == 0) {
+            task.assignId(nextId++);
+            return;
+        }
+        assert task.getId() >= nextId : "Task ids should grow along the list";
+        nextId = task.getId() + 1;
+    }
+
+    /**
+     * Returns a read-only view of the tasks that follows later changes to this list.
+     *
+     * @return A live, unmodifiable view.
+     */
+    public List<Task> asList() {
+        return new AbstractList<>() {
+            @Override
+            public Task get(int index) {
+                return TaskList.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return TaskList.this.size();
+            }
+        };
+    }
+
+    /**
+     * Returns a point-in-time copy of the tasks that a background thread may read,
+     * e.g. to write a snapshot while commands keep changing this list.
+     *
+     * @return A read-only copy of the list.
+     */
+    public List<Task> snapshot() {
+        return store.snapshot();
     }
 
     /**
@@ -50,6 +505,12 @@ public class TaskList {
      * After calling this, {@code size()} will return 0.
      */
     public void clear() {
-        tasks.clear();
+        for (int i = 0; i < store.size(); i++) {
+            recordChange(store.idAt(i));
+        }
+        store.clear();
+        for (TaskIndex index : indexes) {
+            index.cleared();
+        }
     }
 }
@@ -0,0 +1,36 @@
+package shonks.task;
+
+import java.util.List;
+
+/**
+ * Backing store for the tasks of a {@link TaskList}, addressed by 0-based list position.
+ */
+interface TaskStore {
+
+    int size();
+
+    Task get(int index);
+
+    /**
+     * Returns the stable id of the task at the given position without materializing it.
+     */
+    long idAt(int index);
+
+    /**
+     * Returns the position of the task with the given stable id, or -1 if there is none.
+     * Ids grow along the list, so this is a binary search that decodes nothing.
+     */
+    int indexOfId(long id);
+
+    void add(Task task);
+
+    Task remove(int index);
+
+    void clear();
+
+    /**
+     * Returns a point-in-time copy of the list that another thread may read.
+     * The copy is shallow, so task objects may be shared with the live list.
+     */
+    List<Task> snapshot();
+}
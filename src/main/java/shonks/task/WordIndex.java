@@ -0,0 +1,218 @@
+package shonks.task;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongPredicate;
+
+/**
+ * Inverted index from the lowercased, whitespace-separated words of task descriptions to the
+ * ids of the tasks that contain them.
+ * <p>
+ * {@link Task#contains(String)} matches substrings, so a keyword is looked up by its longest
+ * run of non-whitespace characters: a task can only contain the keyword if one of its words
+ * contains that run. Candidates are a superset of the matches and must still be checked
+ * with {@link Task#contains(String)}.
+ * <p>
+ * The distinct words are themselves indexed by their trigrams (three consecutive chars), so
+ * a run of three or more chars is only compared against the words sharing its rarest
+ * trigram. A query then costs that word list plus the candidate set, independent of the
+ * list size; shorter runs scan all distinct words.
+ * <p>
+ * Removed ids are left in their posting lists and counted; a list is compacted once more
+ * than half of it is dead, and dropped when nothing in it is live.
+ */
+class WordIndex implements TaskIndex {
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<Long, Set<String>> wordsByTrigram = new HashMap<>();
+    private final LongPredicate isLive;
+
+    /**
+     * Creates an empty index.
+     *
+     * @param isLive Tells whether a task id is still in the list.
+     */
+    WordIndex(LongPredicate isLive) {
+        this.isLive = isLive;
+    }
+
+    @Override
+    public void added(Task task) {
+        for (String word : words(task.getDescription())) {
+            Postings list = postings.get(word);
+            if (list == null) {
+                list = new Postings();
+                postings.put(word, list);
+                for (long trigram : trigrams(word)) {
+                    wordsByTrigram.computeIfAbsent(trigram, t -> new HashSet<>()).add(word);
+                }
+            }
+            list.add(task.getId());
+        }
+    }
+
+    @Override
+    public void removed(Task task) {
+        for (String word : words(task.getDescription())) {
+            Postings list = postings.get(word);
+            if (list != null && list.markDead(isLive)) {
+                postings.remove(word);
+                for (long trigram : trigrams(word)) {
+                    Set<String> words = wordsByTrigram.get(trigram);
+                    words.remove(word);
+                    if (words.isEmpty()) {
+                        wordsByTrigram.remove(trigram);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void cleared() {
+        postings.clear();
+        wordsByTrigram.clear();
+    }
+
+    /**
+     * Returns the ids of the tasks that may contain the keyword, in increasing order.
+     * Ids of removed tasks may still be among them.
+     *
+     * @param keyword Keyword as given to {@link Task#contains(String)}.
+     * @param limit Number of postings above which the index gives up.
+     * @return Candidate ids, or null if the keyword has no non-whitespace character to look up
+     *     or would have more than {@code limit} candidates.
+     */
+    long[] candidates(String keyword, int limit) {
+        String longest = null;
+        for (String word : words(keyword)) {
+            if (longest == null || word.length() > longest.length()) {
+                longest = word;
+            }
+        }
+        if (longest == null) {
+            return null;
+        }
+
+        long[] ids = new long[0];
+        int count = 0;
+        for (String word : wordsSharingRarestTrigram(longest)) {
+            if (word.contains(longest)) {
+                Postings list = postings.get(word);
+                if (count + list.size > limit) {
+                    return null;
+                }
+                if (count + list.size > ids.length) {
+                    ids = Arrays.copyOf(ids, Math.max(ids.length * 2, count + list.size));
+                }
+                System.arraycopy(list.ids, 0, ids, count, list.size);
+                count += list.size;
+            }
+        }
+        return distinctSorted(ids, count);
+    }
+
+    private Set<String> wordsSharingRarestTrigram(String run) {
+        if (run.length() < 3) {
+            return postings.keySet();
+        }
+        Set<String> rarest = null;
+        for (long trigram : trigrams(run)) {
+            Set<String> words = wordsByTrigram.get(trigram);
+            if (words == null) {
+                return Set.of();
+            }
+            if (rarest == null || words.size() < rarest.size()) {
+                rarest = words;
+            }
+        }
+        return rarest;
+    }
+
+    /**
+     * Returns the distinct trigrams of a word, each packed as three 16-bit chars.
+     */
+    private static Set<Long> trigrams(String word) {
+        Set<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= word.length(); i++) {
+            trigrams.add(((long) word.charAt(i) << 32) | ((long) word.charAt(i + 1) << 16) | word.charAt(i + 2));
+        }
+        return trigrams;
+    }
+
+    private static long[] distinctSorted(long[] ids, int count) {
+        Arrays.sort(ids, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || ids[i] != ids[distinct - 1]) {
+                ids[distinct++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, distinct);
+    }
+
+    /**
+     * Returns the distinct lowercased words of the given text, split at whitespace.
+     */
+    static Set<String> words(String text) {
+        String lower = text.toLowerCase();
+        Set<String> words = new HashSet<>();
+        int at = 0;
+        while (at < lower.length()) {
+            if (Character.isWhitespace(lower.charAt(at))) {
+                at++;
+                continue;
+            }
+            int end = at;
+            while (end < lower.length() && !Character.isWhitespace(lower.charAt(end))) {
+                end++;
+            }
+            words.add(lower.substring(at, end));
+            at = end;
+        }
+        return words;
+    }
+
+    /**
+     * Ids of the tasks containing one word, in increasing order.
+     */
+    private static class Postings {
+        private long[] ids = new long[2];
+        private int size;
+        private int dead;
+
+        void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            assert size == 0 || ids[size - 1] < id : "Task ids should grow along the list";
+            ids[size++] = id;
+        }
+
+        /**
+         * Counts one more dead id and compacts the list if most of it is dead.
+         *
+         * @return Whether the list is now empty.
+         */
+        boolean markDead(LongPredicate isLive) {
+            dead++;
+            if (dead * 2 <= size) {
+                return false;
+            }
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (isLive.test(ids[i])) {
+                    ids[kept++] = ids[i];
+                }
+            }
+            size = kept;
+            dead = 0;
+            if (ids.length > 2 * Math.max(2, size)) {
+                ids = Arrays.copyOf(ids, Math.max(2, size));
+            }
+            return size == 0;
+        }
+    }
+}
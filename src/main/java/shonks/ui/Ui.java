@@ -32,6 +32,12 @@ public class Ui {
         renderLine(message);
     }
 
+    public void showSaveFailure(String message) {
+        assert message != null : "Error message should not be null";
+        renderLine("Your last changes did not make it to the disk:");
+        renderLine(message);
+    }
+
     public void showListHeader() {
         renderLine("Here is your list. Try not to panic.");
     }
@@ -4,9 +4,15 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import shonks.ShonksException;
 import shonks.command.handlers.ArchiveHandler;
+import shonks.command.handlers.ExportHandler;
+import shonks.command.handlers.ImportHandler;
+import shonks.command.handlers.RestoreArchiveHandler;
 import shonks.command.handlers.StatsHandler;
+import shonks.command.handlers.StatsUtil;
+import shonks.storage.InMemoryStorage;
 import shonks.storage.Storage;
 import shonks.task.Deadline;
+import shonks.task.DescriptionPool;
 import shonks.task.Event;
 import shonks.task.TaskList;
 import shonks.task.Todo;
@@ -14,6 +20,7 @@ import shonks.ui.StringUi;
 import shonks.ui.Ui;
 
 import java.io.File;
+import java.nio.file.Files;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
@@ -22,12 +29,20 @@ import static org.junit.jupiter.api.Assertions.*;
 public class ArchiveAndStatsTest {
 
     private static final String DATA_PATH = "./data/test-shonks.txt";
-    private static final String ARCHIVE_PATH = getAppPath("shonks-archive.txt");
+    private static final String ARCHIVE_PATH = "./data/test-shonks-archive.txt";
+    private static final String EXPORT_CSV_PATH = "./data/test-export.csv";
+    private static final String EXPORT_JSON_PATH = "./data/test-export.jsonl";
 
     @AfterEach
     public void cleanupFiles() {
         new File(DATA_PATH).delete();
+        new File(DATA_PATH + ".image").delete();
+        new File(DATA_PATH + ".journal").delete();
+        new File(DATA_PATH + ".journal.prev").delete();
         new File(ARCHIVE_PATH).delete();
+        new File(ARCHIVE_PATH + ".idx").delete();
+        new File(EXPORT_CSV_PATH).delete();
+        new File(EXPORT_JSON_PATH).delete();
     }
 
     @Test
@@ -53,6 +68,41 @@ public class ArchiveAndStatsTest {
         assertTrue(s.contains("types: todo=1, deadline=1, event=1"));
     }
 
+    @Test
+    public void stats_showsLastCompaction() throws ShonksException {
+        Storage storage = new Storage(DATA_PATH, true);
+        storage.setCompactionThresholds(1024 * 1024, 2);
+        TaskList tasks = new TaskList();
+        for (int i = 0; i < 2; i++) {
+            Todo task = new Todo("task " + i);
+            tasks.add(task);
+            storage.logAdd(task);
+        }
+        storage.compactIfNeeded(tasks);
+        storage.close();    // waits for the compaction
+
+        StringBuilder out = new StringBuilder();
+        ExitStatus exitStatus = new ExitStatus();
+        ShonksContext context = new ShonksContext(storage, tasks, new StringUi(out, exitStatus), exitStatus);
+        new StatsHandler().handle(Command.stats(), context);
+
+        assertTrue(out.toString().contains("last compaction: 2 task(s) in "));
+        assertTrue(out.toString().contains(" bytes reclaimed"));
+    }
+
+    @Test
+    public void stats_showsDescriptionPoolWhileEnabled() {
+        DescriptionPool.enable(16);
+        try {
+            DescriptionPool.intern("standup");
+            DescriptionPool.intern("standup");
+            assertEquals("shared descriptions: 1 of 2 (50.0% hit rate), ~0 KB saved",
+                    StatsUtil.format(DescriptionPool.shared()));
+        } finally {
+            DescriptionPool.disable();
+        }
+    }
+
     @Test
     public void archive_oneTask_removesFromList() throws ShonksException {
         TaskList tasks = new TaskList();
@@ -91,9 +141,88 @@ public class ArchiveAndStatsTest {
         assertTrue(out.toString().contains("Your list is now empty"));
     }
 
-    private static String getAppPath(String filename) {
-    String home = System.getProperty("user.home");
-    return home + File.separator + ".shonks" + File.separator + filename;
-}
+    @Test
+    public void archiveThenRestore_inMemoryBackend_roundTripsTasks() throws ShonksException {
+        TaskList tasks = new TaskList();
+        tasks.add(new Todo("a"));
+        tasks.add(new Deadline("b", LocalDate.of(2026, 3, 15)));
+        tasks.markDone(1);
+
+        StringBuilder out = new StringBuilder();
+        ExitStatus exitStatus = new ExitStatus();
+        Ui ui = new StringUi(out, exitStatus);
 
+        InMemoryStorage storage = new InMemoryStorage();
+        ShonksContext context = new ShonksContext(storage, tasks, ui, exitStatus);
+
+        new ArchiveHandler().handle(Command.archive(1), context);
+        new ArchiveHandler().handle(Command.archive(null), context);
+        assertEquals(2, storage.archivedCount());
+        assertEquals(0, storage.load().size());
+
+        new RestoreArchiveHandler().handle(Command.restoreArchive(2), context);
+        assertEquals(1, storage.archivedCount());
+        assertEquals("D | 1 | b | 2026-03-15", tasks.get(0).toStorageString());
+        assertEquals("D | 1 | b | 2026-03-15", storage.load().get(0).toStorageString());
+        assertFalse(new File(ARCHIVE_PATH).exists());
+    }
+
+    @Test
+    public void exportThenImport_roundTripsCsvAndJsonLines() throws Exception {
+        TaskList tasks = new TaskList();
+        tasks.add(new Todo("say \"hi\", then leave"));
+        tasks.add(new Deadline("b", LocalDate.of(2026, 3, 15)));
+        tasks.add(new Event("c, d",
+                LocalDateTime.of(2026, 3, 12, 14, 0),
+                LocalDateTime.of(2026, 3, 12, 16, 0)));
+        tasks.markDone(1);
+
+        StringBuilder out = new StringBuilder();
+        ExitStatus exitStatus = new ExitStatus();
+        Ui ui = new StringUi(out, exitStatus);
+        InMemoryStorage storage = new InMemoryStorage();
+        ShonksContext context = new ShonksContext(storage, tasks, ui, exitStatus);
+
+        new ExportHandler().handle(Command.export(EXPORT_CSV_PATH), context);
+        new ExportHandler().handle(Command.export(EXPORT_JSON_PATH), context);
+        new ImportHandler().handle(Command.importFrom(EXPORT_CSV_PATH), context);
+        new ImportHandler().handle(Command.importFrom(EXPORT_JSON_PATH), context);
+
+        assertEquals(9, tasks.size());
+        assertFalse(tasks.isDirty());
+        assertEquals(9, storage.load().size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(tasks.get(i).toStorageString(), tasks.get(i + 3).toStorageString());
+            assertEquals(tasks.get(i).toStorageString(), tasks.get(i + 6).toStorageString());
+        }
+
+        Files.writeString(new File(EXPORT_CSV_PATH).toPath(), "T,0,fine\nD,0,broken,someday\n");
+        ShonksException e = assertThrows(ShonksException.class,
+                () -> new ImportHandler().handle(Command.importFrom(EXPORT_CSV_PATH), context));
+        assertTrue(e.getMessage().contains("Line 2"));
+        assertEquals(9, tasks.size());
+    }
+
+    @Test
+    public void addEvent_warnsAboutClashingEvents() throws ShonksException {
+        TaskList tasks = new TaskList();
+        tasks.add(new Event("standup", LocalDateTime.of(2026, 3, 12, 9, 0), LocalDateTime.of(2026, 3, 12, 9, 30)));
+        tasks.add(new Event("review", LocalDateTime.of(2026, 3, 12, 14, 0), LocalDateTime.of(2026, 3, 12, 16, 0)));
+
+        StringBuilder out = new StringBuilder();
+        ExitStatus exitStatus = new ExitStatus();
+        ShonksContext context = new ShonksContext(new InMemoryStorage(), tasks, new StringUi(out, exitStatus),
+                exitStatus);
+        CommandInvoker invoker = new CommandInvoker();
+
+        invoker.execute(Command.event("lunch", LocalDateTime.of(2026, 3, 12, 12, 0),
+                LocalDateTime.of(2026, 3, 12, 14, 0)), context);
+        assertFalse(out.toString().contains("clashes"));
+
+        invoker.execute(Command.event("demo", LocalDateTime.of(2026, 3, 12, 15, 0),
+                LocalDateTime.of(2026, 3, 12, 17, 0)), context);
+        assertEquals(4, tasks.size());
+        assertTrue(out.toString().contains("clashes with 1 event(s)"));
+        assertTrue(out.toString().contains("2.[E][ ] review"));
+    }
 }
@@ -3,6 +3,7 @@ package shonks.parser;
 import org.junit.jupiter.api.Test;
 import shonks.ShonksException;
 import shonks.command.Command;
+import shonks.task.TaskFilter;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -17,6 +18,15 @@ public class ParserTest {
         assertEquals(Command.Type.LIST, c.type);
     }
 
+    @Test
+    public void parse_listFilters() throws Exception {
+        assertTrue(Parser.parse("list").filters.isEmpty());
+        Command c = Parser.parse("list PENDING events");
+        assertEquals(Command.Type.LIST, c.type);
+        assertEquals(java.util.Set.of(TaskFilter.PENDING, TaskFilter.EVENT), c.filters);
+        assertThrows(ShonksException.class, () -> Parser.parse("list everything"));
+    }
+
     @Test
     public void parse_todo_parsesDescription() throws Exception {
         Command c = Parser.parse("todo read book");
@@ -61,6 +71,41 @@ public class ParserTest {
         assertEquals(Command.Type.STATS, c.type);
     }
 
+    @Test
+    public void parse_exportAndImport_keepPathCase() throws Exception {
+        Command export = Parser.parse("export Backups/Tasks.CSV");
+        assertEquals(Command.Type.EXPORT, export.type);
+        assertEquals("Backups/Tasks.CSV", export.path);
+        assertEquals(Command.Type.IMPORT, Parser.parse("import tasks.jsonl").type);
+        assertThrows(ShonksException.class, () -> Parser.parse("import"));
+    }
+
+    @Test
+    public void parse_dateQueries() throws Exception {
+        Command due = Parser.parse("due 2026-03-15");
+        assertEquals(Command.Type.DUE, due.type);
+        assertEquals(LocalDate.of(2026, 3, 15), due.by);
+        Command before = Parser.parse("due BEFORE 2026-03-15");
+        assertEquals(Command.Type.DUE_BEFORE, before.type);
+        assertEquals(LocalDate.of(2026, 3, 15), before.by);
+        Command between = Parser.parse("between 2026-03-01 2026-03-31");
+        assertEquals(Command.Type.BETWEEN, between.type);
+        assertEquals(LocalDate.of(2026, 3, 1), between.dates.from);
+        assertEquals(LocalDate.of(2026, 3, 31), between.dates.to);
+        assertThrows(ShonksException.class, () -> Parser.parse("due before"));
+        assertThrows(ShonksException.class, () -> Parser.parse("between 2026-03-31 2026-03-01"));
+        assertThrows(ShonksException.class, () -> Parser.parse("between 2026-03-01"));
+    }
+
+    @Test
+    public void parse_overlaps() throws Exception {
+        Command c = Parser.parse("overlaps 2026-03-12T14:00 2026-03-12T16:00");
+        assertEquals(Command.Type.OVERLAPS, c.type);
+        assertEquals(LocalDateTime.of(2026, 3, 12, 14, 0), c.from);
+        assertEquals(LocalDateTime.of(2026, 3, 12, 16, 0), c.to);
+        assertThrows(ShonksException.class, () -> Parser.parse("overlaps 2026-03-12T16:00 2026-03-12T16:00"));
+    }
+
     @Test
     public void parse_unknown_throws() {
         assertThrows(ShonksException.class, () -> Parser.parse("glorp"));
@@ -0,0 +1,599 @@
+package shonks.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import shonks.ShonksException;
+import shonks.task.Deadline;
+import shonks.task.Event;
+import shonks.task.Task;
+import shonks.task.TaskFilter;
+import shonks.task.TaskList;
+import shonks.task.Todo;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StorageTest {
+
+    private static final String DATA_PATH = "./data/test-storage.txt";
+    private static final String ARCHIVE_PATH = "./data/test-storage-archive.txt";
+    private static final String LSM_PATH = "./data/test-lsm";
+
+    @AfterEach
+    public void cleanupFiles() {
+        new File(DATA_PATH).delete();
+        new File(DATA_PATH + ".image").delete();
+        new File(DATA_PATH + ".journal").delete();
+        new File(DATA_PATH + ".journal.prev").delete();
+        new File(DATA_PATH + ".heap.1").delete();
+        new File(DATA_PATH + ".heap.2").delete();
+        new File(ARCHIVE_PATH).delete();
+        new File(ARCHIVE_PATH + ".idx").delete();
+        new File(ARCHIVE_PATH + ".manifest").delete();
+        for (int i = 1; i <= 20; i++) {
+            new File(ARCHIVE_PATH + "." + i + ".gz").delete();
+        }
+        File[] lsmFiles = new File(LSM_PATH).listFiles();
+        if (lsmFiles != null) {
+            for (File file : lsmFiles) {
+                file.delete();
+            }
+        }
+        new File(LSM_PATH).delete();
+    }
+
+    @Test
+    public void journal_replaysMutationsOnTopOfSnapshot() throws ShonksException {
+        Storage storage = new Storage(DATA_PATH, true);
+        TaskList tasks = new TaskList();
+        tasks.add(new Todo("a"));
+        tasks.add(new Deadline("b", LocalDate.of(2026, 3, 15)));
+        storage.save(tasks.asList());
+
+        Task c = new Todo("c");
+        tasks.add(c);
+        storage.logAdd(c);
+        Task a = tasks.remove(0);
+        storage.logDelete(a);
+        c.markDone();
+        storage.logMark(c);
+
+        List<Task> loaded = new Storage(DATA_PATH, true).load().asList();
+        assertEquals(2, loaded.size());
+        assertEquals("D | 0 | b | 2026-03-15", loaded.get(0).toStorageString());
+        assertEquals("T | 1 | c", loaded.get(1).toStorageString());
+        assertEquals(c.getId(), loaded.get(1).getId());
+    }
+
+    @Test
+    public void journal_keepsIdsStableAcrossSnapshots() throws ShonksException {
+        Storage storage = new Storage(DATA_PATH, true);
+        TaskList tasks = new TaskList();
+        tasks.add(new Todo("a"));
+        tasks.add(new Todo("b"));
+        tasks.add(new Todo("c"));
+        tasks.remove(1);
+        storage.save(tasks.asList());
+
+        Task c = tasks.get(1);
+        c.markDone();
+        storage.logMark(c);
+
+        List<Task> loaded = new Storage(DATA_PATH, true).load().asList();
+        assertEquals(3, loaded.get(1).getId());
+        assertTrue(loaded.get(1).isDone());
+    }
+
+    @Test
+    public void journal_ignoresTornFinalRecord() throws Exception {
+        Storage storage = new Storage(DATA_PATH, true);
+        Task a = new Todo("a");
+        a.assignId(1);
+        storage.logAdd(a);
+        Files.writeString(new File(DATA_PATH + ".journal").toPath(), "M | ", StandardOpenOption.APPEND);
+
+        List<Task> loaded = new Storage(DATA_PATH, true).load().asList();
+        assertEquals(1, loaded.size());
+        assertFalse(loaded.get(0).isDone());
+    }
+
+    @Test
+    public void journal_writesUtf8AndCountsEncodedBytes() throws ShonksException {
+        Storage storage = new Storage(DATA_PATH, true);
+        Task coffee = new Todo("café ☕");
+        coffee.assignId(1);
+        storage.logAdd(coffee);
+        storage.close();
+
+        Journal journal = new Journal(DATA_PATH + ".journal");
+        TaskList tasks = new TaskList();
+        journal.recover(tasks, 0);
+        assertEquals("café ☕", tasks.get(0).getDescription());
+        assertEquals(new File(DATA_PATH + ".journal").length(), journal.byteCount());
+
+        Task more = new Todo("naïve");
+        more.assignId(2);
+        journal.appendAdd(more);
+        journal.close();
+        assertEquals(new File(DATA_PATH + ".journal").length(), journal.byteCount());
+    }
+
+    @Test
+    public void compaction_foldsJournalIntoSnapshotInBackground() throws ShonksException {
+        Storage storage = new Storage(DATA_PATH, true);
+        storage.setCompactionThresholds(1024 * 1024, 5);
+        TaskList tasks = new TaskList();
+        for (int i = 0; i < 5; i++) {
+            Task task = new Todo("task " + i);
+            tasks.add(task);
+            storage.logAdd(task);
+        }
+        storage.compactIfNeeded(tasks);
+
+        Task late = new Todo("late");
+        tasks.add(late);
+        storage.logAdd(late);
+        storage.close();
+
+        CompactionReport report = storage.getLastCompaction();
+        assertNotNull(report);
+        assertTrue(report.isSuccessful());
+        assertEquals(5, report.tasksWritten);
+        assertFalse(new File(DATA_PATH + ".journal.prev").exists());
+
+        List<Task> loaded = new Storage(DATA_PATH, true).load().asList();
+        assertEquals(6, loaded.size());
+        assertEquals("T | 0 | late", loaded.get(5).toStorageString());
+    }
+
+    @Test
+    public void compaction_belowThresholds_doesNothing() throws ShonksException {
+        Storage storage = new Storage(DATA_PATH, true);
+        TaskList tasks = new TaskList();
+        tasks.add(new Todo("a"));
+        storage.logAdd(tasks.get(0));
+        storage.compactIfNeeded(tasks);
+        storage.close();
+
+        assertNull(storage.getLastCompaction());
+        assertFalse(new File(DATA_PATH).exists());
+    }
+
+    @Test
+    public void load_afterInterruptedCompaction_replaysBothJournals() throws Exception {
+        Storage storage = new Storage(DATA_PATH, true);
+        TaskList tasks = new TaskList();
+        tasks.add(new Todo("a"));
+        storage.save(tasks.asList());
+        Task b = new Todo("b");
+        tasks.add(b);
+        storage.logAdd(b);
+        storage.close();
+
+        // Simulate a crash after the journal was rotated but before the snapshot was swapped in.
+        File journal = new File(DATA_PATH + ".journal");
+        assertTrue(journal.renameTo(new File(DATA_PATH + ".journal.prev")));
+        Files.writeString(journal.toPath(), "G | 2\nA | 3 | T | 0 | c\n");
+
+        List<Task> loaded = new Storage(DATA_PATH, true).load().asList();
+        assertEquals(3, loaded.size());
+        assertEquals("T | 0 | c", loaded.get(2).toStorageString());
+        assertFalse(new File(DATA_PATH + ".journal.prev").exists());
+        assertEquals(3, new Storage(DATA_PATH, true).load().size());
+    }
+
+    @Test
+    public void binaryFormat_roundTripsAllTaskTypes() throws ShonksException {
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new Todo("a | ünïcode"));
+        tasks.add(new Deadline("b", LocalDate.of(2026, 3, 15)));
+        tasks.add(new Event("c",
+                LocalDateTime.of(2026, 3, 12, 14, 0),
+                LocalDateTime.of(2026, 3, 12, 16, 0, 30)));
+        tasks.get(1).markDone();
+
+        Storage storage = new Storage(DATA_PATH);
+        storage.setFormat(StorageFormat.BINARY);
+        storage.save(tasks);
+
+        Storage reloaded = new Storage(DATA_PATH);
+        List<Task> loaded = reloaded.load().asList();
+        assertEquals(StorageFormat.BINARY, reloaded.getFormat());
+        assertEquals(3, loaded.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i).toStorageString(), loaded.get(i).toStorageString());
+        }
+    }
+
+    @Test
+    public void convertTo_switchesFormatBothWays() throws Exception {
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new Deadline("b", LocalDate.of(2026, 3, 15)));
+        new Storage(DATA_PATH).save(tasks);
+
+        new Storage(DATA_PATH).convertTo(StorageFormat.BINARY);
+        assertFalse(Files.readString(new File(DATA_PATH).toPath(), StandardCharsets.ISO_8859_1)
+                .startsWith("D | "));
+        assertEquals("D | 0 | b | 2026-03-15", new Storage(DATA_PATH).load().get(0).toStorageString());
+
+        new Storage(DATA_PATH).convertTo(StorageFormat.TEXT);
+        assertEquals("D | 0 | b | 2026-03-15", Files.readString(new File(DATA_PATH).toPath()).trim());
+    }
+
+    @Test
+    public void load_textFile_matchesLineByLineParsing() throws Exception {
+        String[] lines = {
+            "T | 1 | read book",
+            "D | 0 | return book | 2026-03-15",
+            "E | 0 | meeting | 2026-03-12T14:00 | 2026-03-12T16:00:30",
+            "E | 1 | précis | 2026-03-12T14:00:00.5 | 2026-03-12T16:00",
+            "T | 0 | extra | fields | ignored",
+        };
+        Files.writeString(new File(DATA_PATH).toPath(), String.join("\r\n", lines) + "\n\n   \n");
+
+        List<Task> loaded = new Storage(DATA_PATH).load().asList();
+        assertEquals(lines.length, loaded.size());
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(Task.fromStorageString(lines[i]).toStorageString(), loaded.get(i).toStorageString());
+        }
+    }
+
+    @Test
+    public void load_corruptedTextLine_reportsLineNumber() throws Exception {
+        Files.writeString(new File(DATA_PATH).toPath(), "T | 0 | fine\n\nX | 0 | huh\n");
+        ShonksException e = assertThrows(ShonksException.class, () -> new Storage(DATA_PATH).load());
+        assertTrue(e.getMessage().contains("line 3"), e.getMessage());
+    }
+
+    @Test
+    public void loadLazily_checksEveryLineUpFront() throws Exception {
+        String[] lines = {
+            "T | 1 | read book",
+            "D | 0 | return book | 2024-02-29",
+            "E | 0 | meeting | 2026-03-12T14:00 | 2026-03-12T16:00:30",
+            "E | 1 | précis | 2026-03-12T14:00:00.5 | 2026-03-12T16:00",
+            "T | 0 | extra | fields | ignored",
+        };
+        Files.writeString(new File(DATA_PATH).toPath(), String.join("\n", lines) + "\n");
+        List<Task> loaded = new Storage(DATA_PATH).loadLazily(2).asList();
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(Task.fromStorageString(lines[i]).toStorageString(), loaded.get(i).toStorageString());
+        }
+
+        String[] corrupted = {
+            "D | 0 | leap | 2026-02-29",
+            "E | 0 | late | 2026-03-12T24:00 | 2026-03-12T16:00",
+            "D | 0 | | 2026-03-15",
+            "T | 0 | ",
+        };
+        for (String line : corrupted) {
+            Files.writeString(new File(DATA_PATH).toPath(), "T | 0 | fine\n" + line + "\n");
+            ShonksException e = assertThrows(ShonksException.class, () -> new Storage(DATA_PATH).loadLazily(2));
+            assertTrue(e.getMessage().contains("line 2"), line + " -> " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void load_largeTextFileInParallel_keepsOrderAndGlobalLineNumbers() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i <= 400_000; i++) {
+            sb.append("D | 0 | task number ").append(i).append(" | 2026-03-15\n");
+        }
+        Files.writeString(new File(DATA_PATH).toPath(), sb);
+
+        List<Task> loaded = new Storage(DATA_PATH).load().asList();
+        assertEquals(400_000, loaded.size());
+        for (int i = 0; i < loaded.size(); i++) {
+            assertEquals("task number " + (i + 1), loaded.get(i).getDescription());
+        }
+
+        sb.append("D | 0 | broken | 2026-13-45\n");
+        Files.writeString(new File(DATA_PATH).toPath(), sb);
+        ShonksException e = assertThrows(ShonksException.class, () -> new Storage(DATA_PATH).load());
+        assertTrue(e.getMessage().contains("line 400001"), e.getMessage());
+    }
+
+    @Test
+    public void loadLazily_keepsDoneFlagsOfEvictedTasks() throws ShonksException {
+        TaskList tasks = new TaskList();
+        for (int i = 0; i < 50; i++) {
+            tasks.add(new Todo("task " + i));
+        }
+        new Storage(DATA_PATH).save(tasks.asList());
+
+        TaskList lazy = new Storage(DATA_PATH).loadLazily(4);
+        assertEquals(50, lazy.size());
+        for (int i = 0; i < 50; i += 2) {
+            lazy.get(i).markDone();
+        }
+        lazy.add(new Todo("late"));
+        lazy.remove(1);
+
+        List<Task> snapshot = lazy.snapshot();
+        assertEquals(50, snapshot.size());
+        assertTrue(lazy.get(0).isDone());
+        assertEquals("T | 1 | task 2", lazy.get(1).toStorageString());
+        assertEquals("T | 0 | task 3", lazy.get(2).toStorageString());
+        assertEquals(51, lazy.get(49).getId());
+
+        new Storage(DATA_PATH).save(snapshot);
+        List<Task> loaded = new Storage(DATA_PATH).load().asList();
+        assertEquals(50, loaded.size());
+        assertEquals("T | 1 | task 48", loaded.get(47).toStorageString());
+        assertEquals("T | 0 | late", loaded.get(49).toStorageString());
+    }
+
+    @Test
+    public void writeBehind_coalescesBurstIntoOneWrite() throws ShonksException {
+        Storage storage = new Storage(DATA_PATH);
+        TaskList tasks = new TaskList();
+        storage.enableWriteBehind(tasks, 60_000);
+        for (int i = 0; i < 10_000; i++) {
+            tasks.add(new Todo("task " + i));
+            storage.requestSave(tasks);
+        }
+        assertFalse(new File(DATA_PATH).exists());
+
+        storage.sync();
+        assertEquals(1, storage.flushCount());
+        assertEquals(10_000, new Storage(DATA_PATH).load().size());
+
+        storage.sync();
+        assertEquals(1, storage.flushCount());
+        storage.close();
+    }
+
+    @Test
+    public void journalReplay_keepsCountsAndFiltersBuiltBeforeItCurrent() throws Exception {
+        Task task = new Todo("replayed");
+        task.assignId(7);
+        Journal journal = new Journal(DATA_PATH + ".journal");
+        journal.appendMark(task);
+        journal.close();
+
+        Task loaded = new Todo("replayed");
+        loaded.assignId(7);
+        ArrayList<Task> snapshot = new ArrayList<>();
+        snapshot.add(loaded);
+        TaskList tasks = new TaskList(snapshot);
+        assertEquals(0, tasks.countDone());
+        assertTrue(tasks.filter(java.util.Set.of(TaskFilter.DONE)).isEmpty());
+
+        new Journal(DATA_PATH + ".journal").recover(tasks, 0);
+        assertEquals(1, tasks.countDone());
+        assertEquals(List.of(0), tasks.filter(java.util.Set.of(TaskFilter.DONE)));
+        assertTrue(tasks.isDirty());
+    }
+
+    @Test
+    public void writeBehind_groupCommitsJournalRecords() throws Exception {
+        Storage storage = new Storage(DATA_PATH, true);
+        TaskList tasks = new TaskList();
+        storage.enableWriteBehind(tasks, 60_000);
+        for (int i = 0; i < 100; i++) {
+            Task task = new Todo("task " + i);
+            tasks.add(task);
+            storage.logAdd(task);
+        }
+        assertEquals(0, new File(DATA_PATH + ".journal").length());
+
+        storage.sync();
+        assertEquals(1, storage.flushCount());
+        assertEquals(100, new Storage(DATA_PATH, true).load().size());
+        storage.close();
+    }
+
+    @Test
+    public void save_replacesDataFileAtomicallyUnderEveryDurability() throws Exception {
+        Files.writeString(new File(DATA_PATH).toPath(), "T | 0 | old\n");
+        for (Durability durability : Durability.values()) {
+            Storage storage = new Storage(DATA_PATH);
+            storage.setDurability(durability);
+            TaskList tasks = storage.load();
+            tasks.add(new Todo(durability.name()));
+            storage.save(tasks.asList());
+
+            assertFalse(new File(DATA_PATH + ".tmp").exists());
+            assertEquals(tasks.size(), new Storage(DATA_PATH).load().size());
+        }
+        assertEquals("T | 0 | FILE_AND_DIRECTORY", new Storage(DATA_PATH).load().get(3).toStorageString());
+    }
+
+    @Test
+    public void archive_restoresOneTaskThroughIndexAndCompactsTombstones() throws Exception {
+        List<Task> archived = new ArrayList<>();
+        for (int i = 0; i < 4000; i++) {
+            archived.add(new Todo("task " + i));
+        }
+        Storage storage = new Storage(DATA_PATH);
+        storage.archive(archived.subList(0, 2000));
+        storage.archive(archived.subList(2000, 4000));
+
+        assertEquals("task 5", storage.restoreFromArchive(5).getDescription());
+        assertEquals("task 6", storage.restoreFromArchive(5).getDescription());
+        assertEquals(3998, storage.archivedCount());
+        assertThrows(ShonksException.class, () -> storage.restoreFromArchive(3998));
+
+        // Tombstones survive both a reopen and a rebuild of the index from the archive.
+        assertEquals("task 7", new Storage(DATA_PATH).restoreFromArchive(5).getDescription());
+        assertTrue(new File(ARCHIVE_PATH + ".idx").delete());
+        assertEquals("task 8", new Storage(DATA_PATH).restoreFromArchive(5).getDescription());
+
+        Storage restorer = new Storage(DATA_PATH);
+        for (int i = 0; i < 1020; i++) {
+            restorer.restoreFromArchive(0);
+        }
+        List<String> lines = Files.readAllLines(new File(ARCHIVE_PATH).toPath());
+        assertEquals(2976, lines.size());
+        assertEquals("T | 0 | task 1024", lines.get(0));
+
+        List<Task> rest = restorer.restoreAllFromArchive();
+        assertEquals(2976, rest.size());
+        assertEquals("task 3999", rest.get(2975).getDescription());
+        assertEquals(0, new Storage(DATA_PATH).archivedCount());
+    }
+
+    @Test
+    public void archive_sealsCompressedSegmentsAndRestoresAcrossThem() throws Exception {
+        List<Task> archived = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            archived.add(new Todo("task " + i)); // "T | 0 | task NN" is 15-16 bytes with its line break
+        }
+        Storage storage = new Storage(DATA_PATH);
+        storage.setArchiveSegmentBytes(400);
+        storage.archive(archived.subList(0, 60));
+        storage.archive(archived.subList(60, 100));
+
+        assertTrue(new File(ARCHIVE_PATH + ".1.gz").exists());
+        assertTrue(new File(ARCHIVE_PATH + ".3.gz").exists());
+        assertFalse(new File(ARCHIVE_PATH + ".4.gz").exists());
+        assertEquals(100, storage.archivedCount());
+
+        assertEquals("task 30", storage.restoreFromArchive(30).getDescription());
+        assertEquals("task 99", storage.restoreFromArchive(98).getDescription());
+
+        Storage reopened = new Storage(DATA_PATH);
+        reopened.setArchiveSegmentBytes(400);
+        assertEquals(98, reopened.archivedCount());
+        assertEquals("task 31", reopened.restoreFromArchive(30).getDescription());
+        List<Task> rest = reopened.restoreAllFromArchive();
+        assertEquals(97, rest.size());
+        assertEquals("task 29", rest.get(29).getDescription());
+        assertEquals("task 32", rest.get(30).getDescription());
+        assertFalse(new File(ARCHIVE_PATH + ".1.gz").exists());
+    }
+
+    @Test
+    public void requestSave_skipsListsWithoutChanges() throws ShonksException {
+        Storage storage = new Storage(DATA_PATH);
+        TaskList tasks = new TaskList();
+        tasks.add(new Todo("a"));
+        tasks.markDone(0);
+        storage.requestSave(tasks);
+        assertTrue(new File(DATA_PATH).delete());
+
+        tasks.markDone(0);
+        storage.requestSave(tasks);
+        assertFalse(new File(DATA_PATH).exists());
+
+        tasks.unmarkDone(0);
+        storage.requestSave(tasks);
+        assertEquals("T | 0 | a", new Storage(DATA_PATH).load().get(0).toStorageString());
+    }
+
+    @Test
+    public void slottedFormat_updatesTasksInPlace() throws Exception {
+        TaskList tasks = new TaskList();
+        tasks.add(new Todo("a"));
+        tasks.add(new Deadline("b", LocalDate.of(2026, 3, 15)));
+        tasks.add(new Event("c",
+                LocalDateTime.of(2026, 3, 12, 14, 0),
+                LocalDateTime.of(2026, 3, 12, 16, 0, 30)));
+        Storage storage = new Storage(DATA_PATH);
+        storage.setFormat(StorageFormat.SLOTTED);
+        storage.save(tasks.asList());
+        File file = new File(DATA_PATH);
+        long length = file.length();
+
+        Storage reopened = new Storage(DATA_PATH);
+        TaskList loaded = reopened.load();
+        assertEquals(StorageFormat.SLOTTED, reopened.getFormat());
+        assertTrue(reopened.isIncremental());
+        loaded.markDone(2);
+        reopened.logMark(loaded.get(2));
+        reopened.logDelete(loaded.remove(0));
+        Task d = new Todo("d");
+        loaded.add(d);
+        reopened.logAdd(d);
+        reopened.close();
+        assertEquals(length, file.length()); // the freed slot was reused
+
+        List<Task> reloaded = new Storage(DATA_PATH).load().asList();
+        assertEquals(3, reloaded.size());
+        assertEquals("D | 0 | b | 2026-03-15", reloaded.get(0).toStorageString());
+        assertEquals("E | 1 | c | 2026-03-12T14:00 | 2026-03-12T16:00:30", reloaded.get(1).toStorageString());
+        assertEquals("T | 0 | d", reloaded.get(2).toStorageString());
+        assertEquals(4, reloaded.get(2).getId());
+
+        new Storage(DATA_PATH).convertTo(StorageFormat.TEXT);
+        assertFalse(new File(DATA_PATH + ".heap.1").exists());
+        assertEquals(3, new Storage(DATA_PATH).load().size());
+    }
+
+    @Test
+    public void load_usesStartupImageUntilDataFileChanges() throws Exception {
+        Storage storage = new Storage(DATA_PATH, true);
+        TaskList tasks = new TaskList();
+        tasks.add(new Todo("a"));
+        tasks.add(new Deadline("b", LocalDate.of(2026, 3, 15)));
+        tasks.add(new Event("c", LocalDateTime.of(2026, 3, 16, 9, 30), LocalDateTime.of(2026, 3, 16, 11, 0)));
+        tasks.markDone(1);
+        storage.save(tasks.asList());
+        File image = new File(DATA_PATH + ".image");
+        assertTrue(image.exists());
+
+        // A load that has to parse the text rewrites the image, so an old stamp shows it was reused.
+        assertTrue(image.setLastModified(1000));
+        List<Task> loaded = new Storage(DATA_PATH, true).load().asList();
+        assertEquals(tasks.size(), loaded.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i).getId(), loaded.get(i).getId());
+            assertEquals(tasks.get(i).toStorageString(), loaded.get(i).toStorageString());
+        }
+        assertEquals(1000L, image.lastModified());
+
+        // Same size and modification time, different content: only the checksum notices.
+        List<String> lines = Files.readAllLines(new File(DATA_PATH).toPath());
+        long modified = new File(DATA_PATH).lastModified();
+        lines.set(lines.size() - 3, lines.get(lines.size() - 3).replace("| a", "| z"));
+        Files.write(new File(DATA_PATH).toPath(), lines);
+        assertTrue(new File(DATA_PATH).setLastModified(modified));
+        assertEquals("z", new Storage(DATA_PATH, true).load().get(0).getDescription());
+        assertNotEquals(1000L, image.lastModified());
+        assertEquals("z", new Storage(DATA_PATH, true).load().get(0).getDescription());
+    }
+
+    @Test
+    public void lsmStorage_mergesSegmentsAndKeepsLatestVersions() throws Exception {
+        LsmStorage storage = new LsmStorage(LSM_PATH, ARCHIVE_PATH, 16);
+        TaskList tasks = storage.load();
+        for (int i = 0; i < 200; i++) {
+            Task task = new Todo("task " + i);
+            tasks.add(task);
+            storage.logAdd(task);
+        }
+        for (int i = 0; i < tasks.size(); i += 3) {
+            tasks.markDone(i);
+            storage.logMark(tasks.get(i));
+        }
+        for (int i = tasks.size() - 1; i >= 0; i -= 5) {
+            storage.logDelete(tasks.remove(i));
+        }
+        storage.close();
+        assertTrue(storage.segmentCount() < 8, "segments should have been merged");
+
+        Files.write(new File(LSM_PATH, "wal.log").toPath(), new byte[] {'P', 0, 0},
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        LsmStorage reopened = new LsmStorage(LSM_PATH, ARCHIVE_PATH, 16);
+        List<Task> loaded = reopened.load().asList();
+        TaskList lazy = reopened.loadLazily(8);
+        assertEquals(tasks.size(), loaded.size());
+        assertEquals(tasks.size(), lazy.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i).getId(), loaded.get(i).getId());
+            assertEquals(tasks.get(i).toStorageString(), loaded.get(i).toStorageString());
+            assertEquals(tasks.get(i).toStorageString(), lazy.get(i).toStorageString());
+        }
+
+        reopened.logClear();
+        assertEquals(0, new LsmStorage(LSM_PATH, ARCHIVE_PATH, 16).load().size());
+    }
+}
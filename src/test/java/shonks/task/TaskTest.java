@@ -64,4 +64,321 @@ public class TaskTest {
     public void fromStorageString_invalid_throws() {
         assertThrows(ShonksException.class, () -> Task.fromStorageString("X | 0 | huh"));
     }
+
+    @Test
+    public void descriptionPool_sharesRepeatedDescriptionsWithinCapacity() throws Exception {
+        DescriptionPool.enable(2);
+        try {
+            Task first = Task.fromStorageString("T | 0 | standup");
+            Task second = Task.fromStorageString("D | 1 | standup | 2026-03-01");
+            assertSame(first.getDescription(), second.getDescription());
+
+            Task.fromStorageString("T | 0 | timesheet");
+            Task.fromStorageString("T | 0 | review");
+            Task evicted = Task.fromStorageString("T | 0 | standup");
+            assertNotSame(first.getDescription(), evicted.getDescription());
+
+            DescriptionPool pool = DescriptionPool.shared();
+            assertEquals(5, pool.getLookups());
+            assertEquals(1, pool.getHits());
+            assertEquals(24 + 24, pool.getBytesSaved());
+            assertEquals(2, pool.size());
+        } finally {
+            DescriptionPool.disable();
+        }
+        assertNotSame(Task.fromStorageString("T | 0 | standup").getDescription(),
+                Task.fromStorageString("T | 0 | standup").getDescription());
+    }
+
+    @Test
+    public void taskList_tracksChangesSinceLastPersist() {
+        TaskList tasks = new TaskList();
+        tasks.add(new Todo("a"));
+        tasks.add(new Todo("b"));
+        tasks.add(new Todo("c"));
+        tasks.markPersisted(tasks.getModCount());
+        assertFalse(tasks.isDirty());
+
+        assertTrue(tasks.markDone(0));
+        assertFalse(tasks.markDone(0));
+        assertFalse(tasks.unmarkDone(1));
+        tasks.remove(2);
+        assertEquals(1, tasks.get(0).getModCount());
+        assertTrue(tasks.isDirty());
+        assertEquals(java.util.Set.of(1L, 3L), tasks.changedSincePersist());
+
+        tasks.markPersisted(tasks.getModCount());
+        assertFalse(tasks.isDirty());
+        assertTrue(tasks.changedSincePersist().isEmpty());
+    }
+
+    @Test
+    public void taskList_removesFromTheMiddleAndKeepsPositionsAndIds() {
+        StringBuilder lines = new StringBuilder();
+        int[] starts = new int[300];
+        int[] lengths = new int[300];
+        long[] ids = new long[300];
+        TaskList eager = new TaskList();
+        for (int i = 0; i < 300; i++) {
+            String line = "T | 0 | task " + i;
+            starts[i] = lines.length();
+            lengths[i] = line.length();
+            ids[i] = i + 1;
+            lines.append(line).append('\n');
+            eager.add(new Todo("task " + i));
+        }
+        TaskList lazy = TaskList.ofRawLines(lines.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8),
+                starts, lengths, ids, 300, 16);
+
+        java.util.List<Long> expected = new java.util.ArrayList<>();
+        for (long id = 1; id <= 300; id++) {
+            expected.add(id);
+        }
+        java.util.Random random = new java.util.Random(17);
+        for (int round = 0; round < 280; round++) {
+            int index = random.nextInt(expected.size());
+            long removedId = expected.remove(index);
+            assertEquals(removedId, eager.remove(index).getId());
+            assertEquals(removedId, lazy.remove(index).getId());
+            assertEquals(-1, eager.indexOfId(removedId));
+            assertEquals(-1, lazy.indexOfId(removedId));
+            if (round % 40 == 0) {
+                Task added = new Todo("added " + round);
+                eager.add(added);
+                lazy.add(new Todo("added " + round));
+                expected.add(added.getId());
+            }
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).longValue(), eager.get(i).getId());
+                assertEquals(expected.get(i).longValue(), lazy.get(i).getId());
+                assertEquals(i, eager.indexOfId(expected.get(i)));
+                assertEquals(i, lazy.indexOfId(expected.get(i)));
+            }
+        }
+        assertEquals(expected.size(), eager.snapshot().size());
+        assertEquals(expected.size(), lazy.snapshot().size());
+    }
+
+    @Test
+    public void taskList_find_matchesLinearScanAcrossChanges() {
+        String[] words = {"Book", "booking", "read", "READ book", "cook", "Notebook  review", "look-up", "e-book"};
+        String[] keywords = {"ook", "oo", "book", "read bo", "K R", "  ", "-", "notebook  rev", "booking"};
+        TaskList tasks = new TaskList();
+        java.util.Random random = new java.util.Random(3);
+        for (int round = 0; round < 400; round++) {
+            int action = random.nextInt(10);
+            if (action < 6 || tasks.size() == 0) {
+                tasks.add(new Todo(words[random.nextInt(words.length)] + " " + round));
+            } else if (action < 9) {
+                tasks.remove(random.nextInt(tasks.size()));
+            } else if (round % 7 == 0) {
+                tasks.clear();
+            }
+            String keyword = keywords[random.nextInt(keywords.length)];
+            java.util.List<Task> expected = new java.util.ArrayList<>();
+            for (Task task : tasks.asList()) {
+                if (task.contains(keyword)) {
+                    expected.add(task);
+                }
+            }
+            assertEquals(expected, tasks.find(keyword));
+        }
+    }
+
+    @Test
+    public void taskList_dateQueries_followAddsAndRemoves() {
+        TaskList tasks = new TaskList();
+        tasks.add(new Deadline("early", LocalDate.of(2026, 3, 1)));
+        tasks.add(new Todo("undated"));
+        tasks.add(new Event("spans", LocalDateTime.of(2026, 2, 27, 9, 0), LocalDateTime.of(2026, 3, 2, 9, 0)));
+        tasks.add(new Deadline("on time", LocalDate.of(2026, 3, 15)));
+        tasks.add(new Deadline("also on time", LocalDate.of(2026, 3, 15)));
+        assertEquals(java.util.List.of(3, 4), tasks.dueOn(LocalDate.of(2026, 3, 15)));
+        assertEquals(java.util.List.of(0), tasks.dueBefore(LocalDate.of(2026, 3, 15)));
+        assertEquals(java.util.List.of(2), tasks.datedBetween(LocalDate.of(2026, 3, 2), LocalDate.of(2026, 3, 14)));
+
+        tasks.remove(0);
+        tasks.add(new Deadline("late", LocalDate.of(2026, 3, 10)));
+        assertEquals(java.util.List.of(2, 3), tasks.dueOn(LocalDate.of(2026, 3, 15)));
+        assertEquals(java.util.List.of(4), tasks.dueBefore(LocalDate.of(2026, 3, 15)));
+        assertEquals(java.util.List.of(1, 4), tasks.datedBetween(LocalDate.of(2026, 3, 2), LocalDate.of(2026, 3, 14)));
+        tasks.clear();
+        assertTrue(tasks.dueBefore(LocalDate.of(2030, 1, 1)).isEmpty());
+    }
+
+    @Test
+    public void taskList_inColumns_matchesObjectListAcrossChanges() {
+        TaskList objects = new TaskList();
+        java.util.List<Task> loaded = new java.util.ArrayList<>();
+        for (int i = 0; i < 601; i++) {
+            objects.add(sampleTask(i));
+            loaded.add(sampleTask(i));
+        }
+        TaskList columns = TaskList.inColumns(loaded, 4);
+
+        java.util.Random random = new java.util.Random(23);
+        for (int round = 0; round < 500; round++) {
+            int index = random.nextInt(objects.size());
+            switch (random.nextInt(4)) {
+            case 0:
+                assertEquals(objects.markDone(index), columns.markDone(index));
+                break;
+            case 1:
+                assertEquals(objects.unmarkDone(index), columns.unmarkDone(index));
+                break;
+            case 2:
+                assertEquals(objects.remove(index).formatStatusLine(), columns.remove(index).formatStatusLine());
+                break;
+            default:
+                objects.add(sampleTask(round));
+                columns.add(sampleTask(round));
+                break;
+            }
+        }
+        java.util.List<Task> snapshot = columns.snapshot();
+        assertEquals(objects.size(), snapshot.size());
+        for (int i = 0; i < objects.size(); i++) {
+            assertEquals(objects.get(i).getId(), columns.get(i).getId());
+            assertEquals(objects.get(i).formatStatusLine(), columns.get(i).formatStatusLine());
+            assertEquals(objects.get(i).formatStatusLine(), snapshot.get(i).formatStatusLine());
+        }
+        columns.clear();
+        columns.add(new Todo("overwrites nothing"));
+        assertEquals(objects.get(0).formatStatusLine(), snapshot.get(0).formatStatusLine());
+    }
+
+    @Test
+    public void columnStore_spreadsDescriptionsOverChunks() {
+        ColumnTaskStore store = new ColumnTaskStore(2, 0, 256);
+        java.util.List<Task> expected = new java.util.ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Task task = i == 150 ? new Todo("x".repeat(1000)) : sampleTask(i);
+            task.assignId(i + 1);
+            store.add(task);
+            expected.add(task);
+        }
+        for (int i = 299; i >= 0; i -= 3) {
+            assertEquals(expected.remove(i).formatStatusLine(), store.remove(i).formatStatusLine());
+        }
+        java.util.List<Task> snapshot = store.snapshot();
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).formatStatusLine(), store.get(i).formatStatusLine());
+            assertEquals(expected.get(i).formatStatusLine(), snapshot.get(i).formatStatusLine());
+        }
+    }
+
+    private static Task sampleTask(int i) {
+        switch (i % 4) {
+        case 0:
+            return new Todo("todo " + i + " ✓");
+        case 1:
+            return new Deadline("deadline " + i, LocalDate.of(2026, 1, 1).plusDays(i));
+        case 2:
+            return new Event("event " + i, LocalDateTime.of(2026, 1, 1, 9, 0, 0, i),
+                    LocalDateTime.of(2026, 1, 2, 9, 30));
+        default:
+            return new Task("plain " + i);
+        }
+    }
+
+    @Test
+    public void taskList_filter_matchesBruteForceAcrossChanges() {
+        TaskList tasks = new TaskList();
+        for (int i = 0; i < 5000; i++) {
+            tasks.add(sampleTask(i));
+        }
+        java.util.List<java.util.Set<TaskFilter>> filterSets = java.util.List.of(
+                java.util.Set.of(), java.util.Set.of(TaskFilter.PENDING), java.util.Set.of(TaskFilter.DONE),
+                java.util.Set.of(TaskFilter.PENDING, TaskFilter.DONE, TaskFilter.DEADLINE),
+                java.util.Set.of(TaskFilter.DONE, TaskFilter.TODO, TaskFilter.EVENT));
+        java.util.Random random = new java.util.Random(29);
+        for (int round = 0; round < 8; round++) {
+            for (int i = 0; i < 600; i++) {
+                int index = random.nextInt(tasks.size());
+                if (random.nextInt(3) == 0) {
+                    tasks.markDone(index);
+                } else {
+                    tasks.remove(index);
+                }
+            }
+            tasks.unmarkDone(0);
+            tasks.add(sampleTask(round));
+            for (java.util.Set<TaskFilter> filters : filterSets) {
+                java.util.List<Integer> expected = new java.util.ArrayList<>();
+                for (int i = 0; i < tasks.size(); i++) {
+                    if (matches(tasks.get(i), filters)) {
+                        expected.add(i);
+                    }
+                }
+                assertEquals(expected, tasks.filter(filters));
+            }
+        }
+        tasks.clear();
+        assertTrue(tasks.filter(java.util.Set.of()).isEmpty());
+        tasks.add(new Todo("again"));
+        assertEquals(java.util.List.of(0), tasks.filter(java.util.Set.of(TaskFilter.TODO)));
+    }
+
+    private static boolean matches(Task task, java.util.Set<TaskFilter> filters) {
+        boolean isStatusMatch = filters.stream().noneMatch(TaskFilter::isStatus)
+                || filters.contains(task.isDone() ? TaskFilter.DONE : TaskFilter.PENDING);
+        boolean isTypeMatch = filters.stream().allMatch(TaskFilter::isStatus)
+                || (task instanceof Todo && filters.contains(TaskFilter.TODO))
+                || (task instanceof Deadline && filters.contains(TaskFilter.DEADLINE))
+                || (task instanceof Event && filters.contains(TaskFilter.EVENT));
+        return isStatusMatch && isTypeMatch;
+    }
+
+    @Test
+    public void taskList_counts_followAddsMarksAndRemoves() {
+        TaskList tasks = new TaskList();
+        tasks.add(new Todo("a"));
+        tasks.add(new Deadline("b", LocalDate.of(2026, 3, 1)));
+        assertEquals(0, tasks.countDone());
+        assertEquals(1, tasks.countTodos());
+
+        tasks.add(new Event("c", LocalDateTime.of(2026, 3, 1, 9, 0), LocalDateTime.of(2026, 3, 1, 10, 0)));
+        tasks.markDone(1);
+        tasks.markDone(1);
+        tasks.markDone(2);
+        tasks.unmarkDone(2);
+        assertEquals(1, tasks.countDone());
+        assertEquals(1, tasks.countDeadlines());
+        assertEquals(1, tasks.countEvents());
+
+        tasks.remove(1);
+        assertEquals(0, tasks.countDone());
+        assertEquals(0, tasks.countDeadlines());
+        tasks.clear();
+        assertEquals(0, tasks.countTodos());
+        assertEquals(0, tasks.countEvents());
+    }
+
+    @Test
+    public void taskList_overlapping_matchesBruteForceAcrossChanges() {
+        TaskList tasks = new TaskList();
+        java.util.Random random = new java.util.Random(11);
+        LocalDateTime base = LocalDateTime.of(2026, 3, 1, 0, 0);
+        for (int round = 0; round < 600; round++) {
+            if (random.nextInt(4) > 0 || tasks.size() == 0) {
+                LocalDateTime from = base.plusHours(random.nextInt(200));
+                tasks.add(random.nextInt(5) == 0 ? new Todo("t" + round)
+                        : new Event("e" + round, from, from.plusHours(random.nextInt(12))));
+            } else {
+                tasks.remove(random.nextInt(tasks.size()));
+            }
+            LocalDateTime from = base.plusHours(random.nextInt(200));
+            LocalDateTime to = from.plusHours(1 + random.nextInt(10));
+            java.util.List<Integer> expected = new java.util.ArrayList<>();
+            for (int i = 0; i < tasks.size(); i++) {
+                if (tasks.get(i) instanceof Event) {
+                    Event event = (Event) tasks.get(i);
+                    if (event.getFrom().isBefore(to) && event.getTo().isAfter(from)) {
+                        expected.add(i);
+                    }
+                }
+            }
+            assertEquals(expected, tasks.overlapping(from, to));
+        }
+    }
 }